@@ -0,0 +1,115 @@
+package com.achldm.chess.bench;
+
+import com.achldm.chess.engine.PositionalEvaluator;
+import com.achldm.chess.engine.nnue.Network;
+import com.achldm.chess.engine.nnue.NnueEvaluator;
+import com.achldm.chess.game.ChessBoard;
+import com.achldm.chess.game.MoveList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 神经网络评估的 JMH 基准：SIMD（Vector API）与标量实现每秒评估次数、增量更新速度的对比，
+ * 并以手工评估作为参照
+ *
+ * 只在 simd 配置下编译：
+ *   mvn -P simd package
+ *   java --add-modules jdk.incubator.vector -cp "target/classes:$(cat target/jmh.classpath)" \
+ *        org.openjdk.jmh.Main NnueBench
+ * 网络为随机权重（写入临时文件后按正常方式内存映射加载），只衡量速度。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class NnueBench {
+
+    @Param({"256", "512"})
+    public int hidden;
+
+    @Param({"true", "false"})
+    public boolean vectorized;
+
+    private NnueEvaluator evaluator;
+    private ChessBoard board;
+    private int[] moves;
+    private int moveIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path file = Files.createTempFile("nnue", ".bin");
+        try {
+            Network.random(hidden, 1).save(file);
+            evaluator = new NnueEvaluator(Network.load(file), vectorized);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        if (evaluator.isVectorized() != vectorized) {
+            throw new IllegalStateException("Vector API 不可用，请确认使用 -P simd 编译并加 --add-modules jdk.incubator.vector");
+        }
+
+        // 随机走 20 步得到一个中局局面
+        board = new ChessBoard();
+        Random random = new Random(42);
+        MoveList list = new MoveList();
+        for (int i = 0; i < 20; i++) {
+            board.generateLegalMoves(list);
+            board.doMove(list.get(random.nextInt(list.size())));
+        }
+        board.generateLegalMoves(list);
+        moves = new int[list.size()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = list.get(i);
+        }
+        evaluator.reset(board);
+    }
+
+    /**
+     * 输出层（每个叶子节点一次）
+     */
+    @Benchmark
+    public int evaluate() {
+        return evaluator.evaluate(board);
+    }
+
+    /**
+     * 走一步、评估、撤销：搜索中每个节点的典型开销
+     */
+    @Benchmark
+    public int moveEvaluateUndo() {
+        int move = moves[moveIndex];
+        moveIndex = moveIndex + 1 == moves.length ? 0 : moveIndex + 1;
+        board.doMove(move);
+        evaluator.onMove(move);
+        int score = evaluator.evaluate(board);
+        board.undoMove(move);
+        evaluator.onUndoMove(move);
+        return score;
+    }
+
+    /**
+     * 参照：手工评估
+     */
+    @Benchmark
+    public int positionalEvaluate() {
+        return PositionalEvaluator.INSTANCE.evaluate(board);
+    }
+}
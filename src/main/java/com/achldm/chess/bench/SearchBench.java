@@ -0,0 +1,174 @@
+package com.achldm.chess.bench;
+
+import com.achldm.chess.engine.Evaluator;
+import com.achldm.chess.engine.MaterialEvaluator;
+import com.achldm.chess.engine.ParallelSearch;
+import com.achldm.chess.engine.PositionalEvaluator;
+import com.achldm.chess.engine.SearchResult;
+import com.achldm.chess.engine.TranspositionTable;
+import com.achldm.chess.engine.nnue.Network;
+import com.achldm.chess.engine.nnue.NnueEvaluator;
+import com.achldm.chess.game.ChessBoard;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * 搜索引擎基准测试：对一组固定局面搜索到指定深度，输出每个局面的节点数、耗时和每秒节点数
+ *
+ * 用法: java -cp target/classes com.achldm.chess.bench.SearchBench [选项]
+ *   -depth N    搜索深度（默认 6）
+ *   -time MS    每个局面的时间预算，0 表示不限（默认 0）
+ *   -hash MB    置换表大小（默认 64）
+ *   -fen "..."  只测试指定局面
+ *   -threads N  搜索线程数（Lazy SMP，默认 1）
+ *   -eval E     评估函数：positional（默认）、material 或 nnue:网络文件
+ *   -scaling 1,2,4,8,16
+ *               并行扩展性测试：依次用各线程数把所有局面搜索到固定深度，
+ *               输出到达深度的总耗时、相对单线程的加速比和并行效率（加速比 / 线程数）；
+ *               单线程基线总会先实际运行一次，不要求列表以 1 开头
+ *
+ *   -target NPS 单线程速度目标（默认 TARGET_NPS），输出实测值是否达标
+ *
+ * 节点计数约定：搜索中每进入一个局面计 1 个节点，包括主搜索（深度 > 0 的 alphaBeta）和静态搜索
+ * （quiesce）的每次调用；根局面本身和置换表命中后直接返回的局面同样在进入时计数，走法生成不计。
+ * 多线程时为所有线程之和。
+ *
+ * 速度目标：单线程、默认手工评估（positional）、预热后在内置局面上搜索到深度 8，
+ * 合计每秒 1,000,000 个节点。当前实测约 340,000 节点/秒（目标的 1/3 左右，单核 Xeon，JDK 17），尚未达标。
+ *
+ * 每个局面开始前清空置换表，单线程结果可重复；节点数总和可以作为引擎改动前后的对比指标。
+ * 多线程的节点数和耗时每次运行都会有差异，扩展性测试建议用较大的深度并多跑几次。
+ */
+public class SearchBench {
+    /** 单线程每秒节点数目标，测量条件见类注释 */
+    public static final long TARGET_NPS = 1_000_000;
+
+    private static final String[] POSITIONS = {
+            "rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR w",
+            "r1ba1a3/4kn3/2n1b4/pNp1p1p1p/4c4/6P2/P1P2R2P/1CcC5/9/2BAKAB2 w",
+            "1cbak4/9/n2a5/2p1p3p/5cp2/2n2N3/6PCP/3AB4/2C6/3A1K1N1 w",
+            "5a3/3k5/3aR4/9/5r3/5n3/9/3A1A3/5K3/2BC2B2 w",
+            "CRN1k1b2/3ca4/4ba3/9/2nr5/9/9/4B4/4A4/4KA3 w",
+            "r2akab1r/9/2n1b1n2/p1p1p3p/6pc1/2P6/P3P1P1P/2N1C1N2/4A4/R1BAK1B1R b",
+    };
+
+    public static void main(String[] args) throws IOException {
+        int depth = 6;
+        long time = 0;
+        int hashMegabytes = 64;
+        int threads = 1;
+        Evaluator evaluator = PositionalEvaluator.INSTANCE;
+        String scaling = null;
+        long target = TARGET_NPS;
+        String[] positions = POSITIONS;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "-time":
+                    time = Long.parseLong(args[++i]);
+                    break;
+                case "-hash":
+                    hashMegabytes = Integer.parseInt(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-eval":
+                    evaluator = createEvaluator(args[++i]);
+                    break;
+                case "-scaling":
+                    scaling = args[++i];
+                    break;
+                case "-target":
+                    target = Long.parseLong(args[++i]);
+                    break;
+                case "-fen":
+                    positions = new String[]{args[++i]};
+                    break;
+                default:
+                    System.err.println("未知参数: " + args[i]);
+                    return;
+            }
+        }
+
+        if (scaling != null) {
+            runScaling(positions, depth, hashMegabytes, evaluator, scaling.split(","));
+            return;
+        }
+
+        // 先浅搜一遍预热 JIT，计时结果才能和速度目标比较
+        runAll(positions, Math.max(1, depth - 2), hashMegabytes, evaluator, threads);
+        TranspositionTable tt = new TranspositionTable(hashMegabytes);
+        ParallelSearch search = new ParallelSearch(evaluator, tt, threads);
+        long totalNodes = 0;
+        long totalMillis = 0;
+        for (String fen : positions) {
+            tt.clear();
+            SearchResult result = search.search(ChessBoard.fromFen(fen), depth, time);
+            totalNodes += result.getNodes();
+            totalMillis += result.getElapsedMillis();
+            System.out.printf("%s%n  %s  %,d 节点/秒%n", fen, result, result.getNodesPerSecond());
+        }
+        search.shutdown();
+        long nps = totalNodes * 1000 / Math.max(1, totalMillis);
+        System.out.printf("合计 节点数 %,d  耗时 %,d ms  %,d 节点/秒%n", totalNodes, totalMillis, nps);
+        if (threads == 1) {
+            System.out.printf("单线程目标 %,d 节点/秒，实测为目标的 %.0f%%，%s%n",
+                    target, nps * 100.0 / target, nps >= target ? "达标" : "未达标");
+        }
+    }
+
+    private static Evaluator createEvaluator(String name) throws IOException {
+        if (name.startsWith("nnue:")) {
+            NnueEvaluator evaluator = new NnueEvaluator(Network.load(Paths.get(name.substring(5))));
+            System.out.println("神经网络评估，" + (evaluator.isVectorized() ? "SIMD" : "标量") + "实现");
+            return evaluator;
+        }
+        return "material".equals(name) ? MaterialEvaluator.INSTANCE : PositionalEvaluator.INSTANCE;
+    }
+
+    /**
+     * 并行扩展性测试：到达固定深度的总耗时（time-to-depth）随线程数的变化
+     */
+    private static void runScaling(String[] positions, int depth, int hashMegabytes, Evaluator evaluator,
+                                   String[] threadCounts) {
+        System.out.println("CPU 核数 " + Runtime.getRuntime().availableProcessors() + "，深度 " + depth);
+        // 先单线程跑一遍预热 JIT，避免第一组结果偏慢
+        runAll(positions, Math.max(1, depth - 2), hashMegabytes, evaluator, 1);
+        // 加速比总是相对实测的单线程耗时计算，线程数列表里是否含 1 都先跑一遍单线程基线
+        long start = System.nanoTime();
+        long baseNodes = runAll(positions, depth, hashMegabytes, evaluator, 1);
+        double baseMillis = (System.nanoTime() - start) / 1e6;
+        printScaling(1, baseMillis, baseNodes, baseMillis);
+        for (String count : threadCounts) {
+            int threads = Integer.parseInt(count.trim());
+            if (threads == 1) {
+                continue;
+            }
+            start = System.nanoTime();
+            long nodes = runAll(positions, depth, hashMegabytes, evaluator, threads);
+            printScaling(threads, (System.nanoTime() - start) / 1e6, nodes, baseMillis);
+        }
+    }
+
+    private static void printScaling(int threads, double millis, long nodes, double baseMillis) {
+        double speedup = baseMillis / millis;
+        System.out.printf("线程 %3d  耗时 %,10.1f ms  节点数 %,14d  %,12.0f 节点/秒  加速比 %5.2f  效率 %5.1f%%%n",
+                threads, millis, nodes, nodes * 1000 / millis, speedup, speedup * 100 / threads);
+    }
+
+    private static long runAll(String[] positions, int depth, int hashMegabytes, Evaluator evaluator, int threads) {
+        TranspositionTable tt = new TranspositionTable(hashMegabytes);
+        ParallelSearch search = new ParallelSearch(evaluator, tt, threads);
+        long nodes = 0;
+        for (String fen : positions) {
+            tt.clear();
+            nodes += search.search(ChessBoard.fromFen(fen), depth, 0).getNodes();
+        }
+        search.shutdown();
+        return nodes;
+    }
+}
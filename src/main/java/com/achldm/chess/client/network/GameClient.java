@@ -4,18 +4,28 @@ import com.achldm.chess.client.ui.GameFrame;
 import com.achldm.chess.client.ui.LobbyFrame;
 import com.achldm.chess.client.ui.LoginFrame;
 import com.achldm.chess.common.GameMessage;
+import com.achldm.chess.common.MessageCodec;
+import com.achldm.chess.common.MessageFrames;
+import com.achldm.chess.common.ProtocolHandshake;
 
 import java.io.*;
 import java.net.Socket;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 游戏客户端网络通信类
  */
 public class GameClient {
+    private static final int HEARTBEAT_INTERVAL = 15; // 心跳间隔（秒），服务器长时间收不到消息会断开连接
+    
     private Socket socket;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+    private DataOutputStream out;
+    private DataInputStream in;
+    private MessageCodec codec;
     private MessageHandler messageHandler;
+    private ScheduledExecutorService heartbeatScheduler;
     
     private LoginFrame loginFrame;
     private LobbyFrame lobbyFrame;
@@ -23,11 +33,38 @@ public class GameClient {
     
     public GameClient(String host, int port) throws IOException {
         socket = new Socket(host, port);
-        out = new ObjectOutputStream(socket.getOutputStream());
-        in = new ObjectInputStream(socket.getInputStream());
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        
+        // 协商通信协议，默认优先使用紧凑二进制协议，服务器不支持时降级为Java序列化
+        boolean preferBinary = Boolean.parseBoolean(System.getProperty("chess.protocol.binary", "true"));
+        socket.setSoTimeout(10000);
+        codec = ProtocolHandshake.clientHandshake(in, out,
+                preferBinary ? MessageCodec.BINARY : MessageCodec.JAVA_SERIALIZATION);
+        socket.setSoTimeout(0);
+        System.out.println("通信协议: " + (codec.getId() == MessageCodec.BINARY ? "二进制" : "Java序列化"));
         
         messageHandler = new MessageHandler();
         messageHandler.start();
+        startHeartbeat();
+    }
+    
+    /**
+     * 定时发送心跳包
+     */
+    private void startHeartbeat() {
+        heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "client-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatScheduler.scheduleAtFixedRate(() -> {
+            try {
+                sendMessage(new GameMessage(GameMessage.MessageType.HEARTBEAT));
+            } catch (RuntimeException e) {
+                heartbeatScheduler.shutdown();
+            }
+        }, HEARTBEAT_INTERVAL, HEARTBEAT_INTERVAL, TimeUnit.SECONDS);
     }
     
     /**
@@ -36,7 +73,7 @@ public class GameClient {
     public synchronized void sendMessage(GameMessage message) {
         try {
             if (socket != null && !socket.isClosed() && out != null) {
-                out.writeObject(message);
+                MessageFrames.write(out, message, codec);
                 out.flush();
                 System.out.println("发送消息: " + message.getType());
             } else {
@@ -58,10 +95,10 @@ public class GameClient {
         public void run() {
             try {
                 while (!socket.isClosed()) {
-                    GameMessage message = (GameMessage) in.readObject();
+                    GameMessage message = MessageFrames.read(in, codec);
                     handleMessage(message);
                 }
-            } catch (IOException | ClassNotFoundException e) {
+            } catch (IOException e) {
                 if (!socket.isClosed()) {
                     e.printStackTrace();
                 }
@@ -88,30 +125,46 @@ public class GameClient {
                 
             case MATCH_FOUND:
                 if (lobbyFrame != null) {
-                    lobbyFrame.onMatchFound(message.isRed());
+                    lobbyFrame.onMatchFound(message.isRed(), message.getRedTimeMillis(), message.getBlackTimeMillis());
                 }
                 break;
                 
             case GAME_START:
-                // 游戏开始的额外处理
+                // 开局时间已随 MATCH_FOUND 下发，游戏界面此时可能尚未创建
                 break;
                 
             case UNDO_REFRESH:
                 if (gameFrame != null) {
                     // 悔棋后的棋盘刷新，使用服务器发送的棋盘状态
                     gameFrame.onUndoRefresh(message.isRed(), message.getBoardState());
+                    if (message.hasClock()) {
+                        gameFrame.onClockUpdate(message.getRedTimeMillis(), message.getBlackTimeMillis(), message.isRed());
+                    }
                 }
                 break;
                 
             case MOVE:
                 if (gameFrame != null) {
-                    gameFrame.onOpponentMove(message.getFromX(), message.getFromY(), 
-                                           message.getToX(), message.getToY());
+                    gameFrame.onOpponentMove(message.getMove());
+                    if (message.hasClock()) {
+                        // 对手走完，轮到自己
+                        gameFrame.onClockUpdate(message.getRedTimeMillis(), message.getBlackTimeMillis(), gameFrame.isRed());
+                    }
+                }
+                break;
+                
+            case MOVE_ACK:
+                if (gameFrame != null && message.hasClock()) {
+                    // 服务器确认自己的走棋，轮到对手
+                    gameFrame.onClockUpdate(message.getRedTimeMillis(), message.getBlackTimeMillis(), !gameFrame.isRed());
                 }
                 break;
                 
             case GAME_OVER:
                 if (gameFrame != null) {
+                    if (message.hasClock()) {
+                        gameFrame.onClockUpdate(message.getRedTimeMillis(), message.getBlackTimeMillis(), !message.isRed());
+                    }
                     gameFrame.onGameOver(message.isRed());
                 }
                 break;
@@ -154,6 +207,10 @@ public class GameClient {
                 }
                 break;
                 
+            case HEARTBEAT:
+                // 服务器的心跳回应，无需处理
+                break;
+                
             default:
                 System.out.println("未处理的消息类型: " + message.getType());
                 break;
@@ -164,6 +221,9 @@ public class GameClient {
      * 关闭连接
      */
     public void close() {
+        if (heartbeatScheduler != null) {
+            heartbeatScheduler.shutdown();
+        }
         try {
             if (socket != null && !socket.isClosed()) {
                 socket.close();
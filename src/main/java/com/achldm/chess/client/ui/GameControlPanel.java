@@ -101,17 +101,7 @@ public class GameControlPanel extends JPanel {
                     GameMessage undoMsg = new GameMessage(GameMessage.MessageType.UNDO_REQUEST);
                     client.sendMessage(undoMsg);
                     chatPanel.appendSystemMessage("已发送悔棋请求，等待对手回应...");
-                    
-                    // 设置超时恢复按钮状态（防止网络问题导致按钮永久禁用）
-                    Timer timeoutTimer = new Timer(10000, e -> {
-                        if (!undoButton.isEnabled()) {
-                            undoButton.setEnabled(true);
-                            undoButton.setText("悔棋");
-                            chatPanel.appendSystemMessage("悔棋请求超时，请重试");
-                        }
-                    });
-                    timeoutTimer.setRepeats(false);
-                    timeoutTimer.start();
+                    // 对手超时未回应时由服务器自动拒绝，收到拒绝回应后恢复按钮
                     
                 } catch (Exception e) {
                     // 发送失败时恢复按钮状态
@@ -149,17 +139,7 @@ public class GameControlPanel extends JPanel {
                     GameMessage drawMsg = new GameMessage(GameMessage.MessageType.DRAW_REQUEST);
                     client.sendMessage(drawMsg);
                     chatPanel.appendSystemMessage("已发送求和请求，等待对手回应...");
-                    
-                    // 设置超时恢复按钮状态（防止网络问题导致按钮永久禁用）
-                    Timer timeoutTimer = new Timer(10000, e -> {
-                        if (!drawButton.isEnabled()) {
-                            drawButton.setEnabled(true);
-                            drawButton.setText("求和");
-                            chatPanel.appendSystemMessage("求和请求超时，请重试");
-                        }
-                    });
-                    timeoutTimer.setRepeats(false);
-                    timeoutTimer.start();
+                    // 对手超时未回应时由服务器自动拒绝，收到拒绝回应后恢复按钮
                     
                 } catch (Exception e) {
                     // 发送失败时恢复按钮状态
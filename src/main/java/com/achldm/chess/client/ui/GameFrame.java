@@ -4,6 +4,7 @@ import com.achldm.chess.client.network.GameClient;
 import com.achldm.chess.common.ChessPiece;
 import com.achldm.chess.common.GameMessage;
 import com.achldm.chess.game.ChessBoard;
+import com.achldm.chess.game.Move;
 
 import javax.sound.sampled.*;
 import javax.swing.*;
@@ -37,8 +38,12 @@ public class GameFrame extends JFrame {
     private ChessBoardPanel boardPanel;
     private JLabel statusLabel;
     private JLabel timeLabel;
-    private Timer gameTimer;
-    private int timeLeft = 600; // 10分钟
+    private Timer gameTimer;  // 只负责刷新时间显示，计时和超时判负由服务器负责
+    // 服务器下发的双方剩余时间快照，本地只在两次快照之间推算行棋方的时间
+    private long redTimeMillis = 600_000;
+    private long blackTimeMillis = 600_000;
+    private boolean clockRedToMove = true;
+    private long clockSnapshotAt = System.currentTimeMillis();
     
     // 聊天相关组件
     private ChatPanel chatPanel;
@@ -134,7 +139,7 @@ public class GameFrame extends JFrame {
         statusLabel = new JLabel("游戏开始 - " + (isMyTurn ? "轮到你了" : "等待对手"), JLabel.CENTER);
         statusLabel.setFont(new Font("宋体", Font.BOLD, 16));
         
-        timeLabel = new JLabel("剩余时间: 10:00", JLabel.CENTER);
+        timeLabel = new JLabel("红方 10:00  黑方 10:00", JLabel.CENTER);
         timeLabel.setFont(new Font("宋体", Font.PLAIN, 14));
         
         // 初始化聊天面板和控制面板
@@ -224,10 +229,7 @@ public class GameFrame extends JFrame {
             } else if (chessBoard.isValidMove(selectedX, selectedY, actualX, actualY)) {
                 // 发送移动消息
                 GameMessage moveMsg = new GameMessage(GameMessage.MessageType.MOVE);
-                moveMsg.setFromX(selectedX);
-                moveMsg.setFromY(selectedY);
-                moveMsg.setToX(actualX);
-                moveMsg.setToY(actualY);
+                moveMsg.setMove(Move.of(ChessBoard.square(selectedX, selectedY), ChessBoard.square(actualX, actualY)));
                 client.sendMessage(moveMsg);
                 
                 // 本地移动
@@ -255,22 +257,37 @@ public class GameFrame extends JFrame {
     }
     
     private void startTimer() {
-        gameTimer = new Timer(1000, e -> {
-            timeLeft--;
+        gameTimer = new Timer(250, e -> updateTimeDisplay());
+        gameTimer.start();
+    }
+    
+    /**
+     * 收到服务器下发的双方剩余时间
+     */
+    public void onClockUpdate(long redMillis, long blackMillis, boolean redToMove) {
+        SwingUtilities.invokeLater(() -> {
+            redTimeMillis = redMillis;
+            blackTimeMillis = blackMillis;
+            clockRedToMove = redToMove;
+            clockSnapshotAt = System.currentTimeMillis();
             updateTimeDisplay();
-            
-            if (timeLeft <= 0) {
-                gameTimer.stop();
-                onGameOver(!isRed); // 超时则对方获胜
-            }
         });
-        gameTimer.start();
     }
     
     private void updateTimeDisplay() {
-        int minutes = timeLeft / 60;
-        int seconds = timeLeft % 60;
-        timeLabel.setText(String.format("剩余时间: %d:%02d", minutes, seconds));
+        long elapsed = gameTimer != null && gameTimer.isRunning() ? System.currentTimeMillis() - clockSnapshotAt : 0;
+        long red = clockRedToMove ? redTimeMillis - elapsed : redTimeMillis;
+        long black = clockRedToMove ? blackTimeMillis : blackTimeMillis - elapsed;
+        timeLabel.setText("红方 " + formatTime(red) + "  黑方 " + formatTime(black));
+    }
+    
+    private static String formatTime(long millis) {
+        long seconds = Math.max(0, millis) / 1000;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+    
+    public boolean isRed() {
+        return isRed;
     }
     
     private void updateStatus() {
@@ -283,9 +300,12 @@ public class GameFrame extends JFrame {
     /**
      * 接收对手移动
      */
-    public void onOpponentMove(int fromX, int fromY, int toX, int toY) {
+    public void onOpponentMove(int move) {
         SwingUtilities.invokeLater(() -> {
-            chessBoard.movePiece(fromX, fromY, toX, toY);
+            int legalMove = chessBoard.findLegalMove(Move.from(move), Move.to(move));
+            if (legalMove != Move.NONE) {
+                chessBoard.doMove(legalMove);
+            }
             isMyTurn = true;
             updateStatus();
             boardPanel.repaint();
@@ -305,7 +325,7 @@ public class GameFrame extends JFrame {
         SwingUtilities.invokeLater(() -> {
             // 使用服务器发送的棋盘状态恢复棋盘
             if (boardState != null && !boardState.isEmpty()) {
-                chessBoard = ChessBoard.deserialize(boardState);
+                chessBoard = ChessBoard.fromFen(boardState);
             } else {
                 // 如果没有棋盘状态，重新初始化
                 chessBoard = new ChessBoard();
@@ -433,12 +453,14 @@ public class GameFrame extends JFrame {
     public void onDrawResponse(boolean accepted, String reason) {
         SwingUtilities.invokeLater(() -> {
             if (accepted) {
+                // 服务器判和（重复局面、自然限着）时带有原因
+                String message = reason != null ? reason : "双方同意求和";
                 gameTimer.stop();
-                chatPanel.appendSystemMessage("双方同意求和，游戏结束");
-                statusLabel.setText("游戏结束 - 双方求和");
+                chatPanel.appendSystemMessage(message + "，游戏结束");
+                statusLabel.setText("游戏结束 - " + message);
                 
                 int option = JOptionPane.showConfirmDialog(this, 
-                    "双方同意求和！\n是否返回大厅？", 
+                    message + "！\n是否返回大厅？", 
                     "游戏结束", 
                     JOptionPane.YES_NO_OPTION);
                     
@@ -283,6 +283,9 @@ public class LobbyFrame extends JFrame {
         isMatching = false;
         joinButton.setText("加入");
         
+        // 通知服务器退出匹配队列
+        client.sendMessage(new GameMessage(GameMessage.MessageType.MATCH_CANCEL));
+        
         chatArea.append("系统: 已取消匹配\n");
         chatArea.setCaretPosition(chatArea.getDocument().getLength());
     }
@@ -315,7 +318,8 @@ public class LobbyFrame extends JFrame {
     /**
      * 匹配成功
      */
-    public void onMatchFound(boolean isRed) {
+    public void onMatchFound(boolean isRed, long redTimeMillis, long blackTimeMillis) {
+        long receivedAt = System.currentTimeMillis();
         SwingUtilities.invokeLater(() -> {
             chatArea.append("系统: 匹配成功！准备开始游戏...\n");
             chatArea.setCaretPosition(chatArea.getDocument().getLength());
@@ -323,6 +327,11 @@ public class LobbyFrame extends JFrame {
             // 延迟一秒后打开游戏界面
             Timer timer = new Timer(1000, e -> {
                 GameFrame gameFrame = new GameFrame(client, isRed, username, userAvatar, avatarIndex);
+                if (redTimeMillis >= 0 && blackTimeMillis >= 0) {
+                    // 服务器在匹配成功时已开始计时（红方先走），扣除界面延迟打开的时间
+                    long elapsed = System.currentTimeMillis() - receivedAt;
+                    gameFrame.onClockUpdate(Math.max(0, redTimeMillis - elapsed), blackTimeMillis, true);
+                }
                 gameFrame.setVisible(true);
                 dispose();
             });
@@ -0,0 +1,200 @@
+package com.achldm.chess.common;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 紧凑二进制编解码器
+ *
+ * 负载格式：
+ *   1字节 MessageType 编号 + 变长整数字段标志位 + 按固定顺序写出的已设置字段
+ * 布尔字段直接保存在标志位中，走法只传起点、终点（Move 编码的低16位，即棋盘信箱坐标）各1字节，
+ * 字符串为 变长长度 + UTF-8 字节，剩余时间为两个变长整数（毫秒）。一条 MOVE 消息加上帧长度只有5个字节。
+ *
+ * 注意：类型编号使用 MessageType 的序号，新增类型只能追加在枚举末尾。
+ */
+public final class BinaryMessageCodec implements MessageCodec {
+    public static final BinaryMessageCodec INSTANCE = new BinaryMessageCodec();
+
+    // 字段标志位
+    private static final int F_USERNAME = 1;
+    private static final int F_CONTENT = 1 << 1;
+    private static final int F_MOVE = 1 << 2;
+    private static final int F_RED = 1 << 3;
+    private static final int F_AVATAR = 1 << 4;
+    private static final int F_USER_INFO = 1 << 5;
+    private static final int F_ACCEPTED = 1 << 6;
+    private static final int F_REASON = 1 << 7;
+    private static final int F_BOARD_STATE = 1 << 8;
+    private static final int F_CLOCK = 1 << 9;
+
+    private static final GameMessage.MessageType[] TYPES = GameMessage.MessageType.values();
+
+    private BinaryMessageCodec() {
+    }
+
+    @Override
+    public int getId() {
+        return BINARY;
+    }
+
+    @Override
+    public byte[] encode(GameMessage message) throws IOException {
+        int flags = 0;
+        if (message.getUsername() != null) flags |= F_USERNAME;
+        if (message.getContent() != null) flags |= F_CONTENT;
+        if ((message.getMove() & 0xFFFF) != 0) flags |= F_MOVE;
+        if (message.isRed()) flags |= F_RED;
+        if (message.getAvatarIndex() != 0) flags |= F_AVATAR;
+        if (message.getUserInfo() != null) flags |= F_USER_INFO;
+        if (message.isAccepted()) flags |= F_ACCEPTED;
+        if (message.getReason() != null) flags |= F_REASON;
+        if (message.getBoardState() != null) flags |= F_BOARD_STATE;
+        if (message.hasClock()) flags |= F_CLOCK;
+
+        Writer out = new Writer((flags & (F_BOARD_STATE | F_CONTENT)) != 0 ? 256 : 16);
+        out.writeByte(message.getType().ordinal());
+        out.writeVarInt(flags);
+        if ((flags & F_USERNAME) != 0) out.writeString(message.getUsername());
+        if ((flags & F_CONTENT) != 0) out.writeString(message.getContent());
+        if ((flags & F_MOVE) != 0) {
+            out.writeByte(message.getMove() & 0xFF);
+            out.writeByte((message.getMove() >>> 8) & 0xFF);
+        }
+        if ((flags & F_AVATAR) != 0) out.writeVarInt(message.getAvatarIndex());
+        if ((flags & F_USER_INFO) != 0) out.writeString(message.getUserInfo());
+        if ((flags & F_REASON) != 0) out.writeString(message.getReason());
+        if ((flags & F_BOARD_STATE) != 0) out.writeString(message.getBoardState());
+        if ((flags & F_CLOCK) != 0) {
+            out.writeVarInt(clampMillis(message.getRedTimeMillis()));
+            out.writeVarInt(clampMillis(message.getBlackTimeMillis()));
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public GameMessage decode(byte[] data, int offset, int length) throws IOException {
+        Reader in = new Reader(data, offset, length);
+        int typeIndex = in.readByte();
+        if (typeIndex >= TYPES.length) {
+            throw new IOException("未知的消息类型: " + typeIndex);
+        }
+
+        GameMessage message = new GameMessage(TYPES[typeIndex]);
+        int flags = in.readVarInt();
+        if ((flags & F_USERNAME) != 0) message.setUsername(in.readString());
+        if ((flags & F_CONTENT) != 0) message.setContent(in.readString());
+        if ((flags & F_MOVE) != 0) {
+            int from = in.readByte();
+            int to = in.readByte();
+            message.setMove(from | (to << 8));
+        }
+        message.setRed((flags & F_RED) != 0);
+        if ((flags & F_AVATAR) != 0) message.setAvatarIndex(in.readVarInt());
+        if ((flags & F_USER_INFO) != 0) message.setUserInfo(in.readString());
+        message.setAccepted((flags & F_ACCEPTED) != 0);
+        if ((flags & F_REASON) != 0) message.setReason(in.readString());
+        if ((flags & F_BOARD_STATE) != 0) message.setBoardState(in.readString());
+        if ((flags & F_CLOCK) != 0) {
+            message.setRedTimeMillis(in.readVarInt());
+            message.setBlackTimeMillis(in.readVarInt());
+        }
+        return message;
+    }
+
+    private static int clampMillis(long millis) {
+        return (int) Math.min(millis, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 简单的字节写入器，避免 DataOutputStream 的额外开销
+     */
+    private static final class Writer {
+        private byte[] buf;
+        private int pos;
+
+        Writer(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buf[pos++] = (byte) value;
+        }
+
+        void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                byte[] larger = new byte[Math.max(buf.length * 2, pos + extra)];
+                System.arraycopy(buf, 0, larger, 0, pos);
+                buf = larger;
+            }
+        }
+
+        byte[] toByteArray() {
+            byte[] result = new byte[pos];
+            System.arraycopy(buf, 0, result, 0, pos);
+            return result;
+        }
+    }
+
+    /**
+     * 带边界检查的字节读取器
+     */
+    private static final class Reader {
+        private final byte[] data;
+        private final int end;
+        private int pos;
+
+        Reader(byte[] data, int offset, int length) {
+            this.data = data;
+            this.pos = offset;
+            this.end = offset + length;
+        }
+
+        int readByte() throws IOException {
+            if (pos >= end) {
+                throw new IOException("消息数据不完整");
+            }
+            return data[pos++] & 0xFF;
+        }
+
+        int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("变长整数格式错误");
+        }
+
+        String readString() throws IOException {
+            int length = readVarInt();
+            if (length < 0 || length > end - pos) {
+                throw new IOException("字符串长度非法: " + length);
+            }
+            String value = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.achldm.chess.common;
 
+import java.util.Arrays;
+
 /**
  * 象棋棋子类型枚举
  */
@@ -29,6 +31,16 @@ public enum ChessPiece {
     private final String name;
     private final boolean isRed;
     
+    // 编号 -> 棋子，fromId 直接查表（values() 每次调用都会复制数组）
+    private static final ChessPiece[] BY_ID = new ChessPiece[24];
+    
+    static {
+        Arrays.fill(BY_ID, EMPTY);
+        for (ChessPiece piece : values()) {
+            BY_ID[piece.id] = piece;
+        }
+    }
+    
     ChessPiece(int id, String name, boolean isRed) {
         this.id = id;
         this.name = name;
@@ -52,11 +64,6 @@ public enum ChessPiece {
     }
     
     public static ChessPiece fromId(int id) {
-        for (ChessPiece piece : values()) {
-            if (piece.id == id) {
-                return piece;
-            }
-        }
-        return EMPTY;
+        return id >= 0 && id < BY_ID.length ? BY_ID[id] : EMPTY;
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.achldm.chess.common;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 编码后的消息
+ * 按编解码器缓存编码好的完整帧，同一条消息发给多个接收者时每种编解码器只编码一次，
+ * 所有接收者共享同一个只读的帧数组（调用方不得修改返回的数组）
+ */
+public final class EncodedMessage {
+    private final GameMessage message;
+    private final AtomicReferenceArray<byte[]> frames = new AtomicReferenceArray<>(MessageCodec.CODEC_COUNT);
+
+    public EncodedMessage(GameMessage message) {
+        this.message = message;
+    }
+
+    /**
+     * 获取指定编解码器下的帧，首次调用时编码（并发首次调用可能重复编码，结果相同）
+     */
+    public byte[] frame(MessageCodec codec) throws IOException {
+        byte[] frame = frames.get(codec.getId());
+        if (frame == null) {
+            frame = MessageFrames.encode(message, codec);
+            frames.set(codec.getId(), frame);
+        }
+        return frame;
+    }
+
+    public GameMessage.MessageType getType() {
+        return message.getType();
+    }
+
+    public GameMessage getMessage() {
+        return message;
+    }
+}
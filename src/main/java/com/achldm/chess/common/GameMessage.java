@@ -25,13 +25,15 @@ public class GameMessage implements Serializable {
         UNDO_REFRESH,   // 悔棋后棋盘刷新
         DRAW_REQUEST,   // 求和请求
         DRAW_RESPONSE,  // 求和回应
-        SURRENDER       // 认输
+        SURRENDER,      // 认输
+        MATCH_CANCEL,   // 取消匹配（新类型只能追加在末尾，二进制协议按序号编码）
+        MOVE_ACK        // 服务器确认走棋，附带双方剩余时间
     }
     
     private MessageType type;
     private String username;
     private String content;
-    private int fromX, fromY, toX, toY;  // 棋子移动坐标
+    private int move;                    // 走法（com.achldm.chess.game.Move 编码），0 表示未携带
     private boolean isRed;               // 是否红方
     private long timestamp;
     private int avatarIndex;             // 头像索引
@@ -39,6 +41,8 @@ public class GameMessage implements Serializable {
     private boolean accepted;            // 请求是否被接受（用于悔棋、求和回应）
     private String reason;               // 拒绝原因
     private String boardState;           // 棋盘状态（用于悔棋刷新）
+    private long redTimeMillis = -1;     // 红方剩余时间（毫秒），-1 表示未携带
+    private long blackTimeMillis = -1;   // 黑方剩余时间（毫秒），-1 表示未携带
     
     public GameMessage(MessageType type) {
         this.type = type;
@@ -55,17 +59,8 @@ public class GameMessage implements Serializable {
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
     
-    public int getFromX() { return fromX; }
-    public void setFromX(int fromX) { this.fromX = fromX; }
-    
-    public int getFromY() { return fromY; }
-    public void setFromY(int fromY) { this.fromY = fromY; }
-    
-    public int getToX() { return toX; }
-    public void setToX(int toX) { this.toX = toX; }
-    
-    public int getToY() { return toY; }
-    public void setToY(int toY) { this.toY = toY; }
+    public int getMove() { return move; }
+    public void setMove(int move) { this.move = move; }
     
     public boolean isRed() { return isRed; }
     public void setRed(boolean red) { isRed = red; }
@@ -87,4 +82,15 @@ public class GameMessage implements Serializable {
     
     public String getBoardState() { return boardState; }
     public void setBoardState(String boardState) { this.boardState = boardState; }
+    
+    public long getRedTimeMillis() { return redTimeMillis; }
+    public void setRedTimeMillis(long redTimeMillis) { this.redTimeMillis = redTimeMillis; }
+    
+    public long getBlackTimeMillis() { return blackTimeMillis; }
+    public void setBlackTimeMillis(long blackTimeMillis) { this.blackTimeMillis = blackTimeMillis; }
+    
+    /**
+     * 是否携带双方剩余时间
+     */
+    public boolean hasClock() { return redTimeMillis >= 0 && blackTimeMillis >= 0; }
 }
\ No newline at end of file
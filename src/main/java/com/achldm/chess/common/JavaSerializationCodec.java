@@ -0,0 +1,41 @@
+package com.achldm.chess.common;
+
+import java.io.*;
+
+/**
+ * 基于 Java 序列化的编解码器
+ * 每帧都包含完整的类描述信息，体积较大，仅作为兼容后备方案
+ */
+public final class JavaSerializationCodec implements MessageCodec {
+    public static final JavaSerializationCodec INSTANCE = new JavaSerializationCodec();
+
+    private JavaSerializationCodec() {
+    }
+
+    @Override
+    public int getId() {
+        return JAVA_SERIALIZATION;
+    }
+
+    @Override
+    public byte[] encode(GameMessage message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public GameMessage decode(byte[] data, int offset, int length) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data, offset, length))) {
+            GameMessage message = (GameMessage) in.readObject();
+            if (message == null || message.getType() == null) {
+                throw new IOException("消息或消息类型为空");
+            }
+            return message;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("无法解析消息", e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.achldm.chess.common;
+
+import java.io.IOException;
+
+/**
+ * 消息负载编解码器
+ * 连接建立时通过 ProtocolHandshake 协商使用哪一种编解码器
+ */
+public interface MessageCodec {
+    int JAVA_SERIALIZATION = 0;  // Java 序列化（兼容后备方案）
+    int BINARY = 1;              // 紧凑二进制协议
+    int CODEC_COUNT = 2;         // 编解码器数量（编号从0开始连续分配）
+
+    /**
+     * 编解码器编号，握手时使用
+     */
+    int getId();
+
+    /**
+     * 将消息编码为帧负载（不含长度头）
+     */
+    byte[] encode(GameMessage message) throws IOException;
+
+    /**
+     * 从帧负载解码消息
+     */
+    GameMessage decode(byte[] data, int offset, int length) throws IOException;
+
+    /**
+     * 根据编号获取编解码器，未知编号返回 null
+     */
+    static MessageCodec forId(int id) {
+        switch (id) {
+            case JAVA_SERIALIZATION:
+                return JavaSerializationCodec.INSTANCE;
+            case BINARY:
+                return BinaryMessageCodec.INSTANCE;
+            default:
+                return null;
+        }
+    }
+}
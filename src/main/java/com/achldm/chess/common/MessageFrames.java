@@ -0,0 +1,107 @@
+package com.achldm.chess.common;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * 消息帧编解码工具
+ * 帧格式：变长整数（varint）表示的负载长度 + 编解码器生成的负载，
+ * 阻塞式连接和NIO连接都使用同一种帧格式，便于非阻塞地拆包
+ */
+public final class MessageFrames {
+    public static final int MAX_FRAME_SIZE = 64 * 1024; // 单帧最大负载
+    public static final int MAX_HEADER_SIZE = 3;        // 64KB 以内的长度最多占3字节
+
+    private MessageFrames() {
+    }
+
+    /**
+     * 将消息编码为完整的帧（包含长度头）
+     */
+    public static byte[] encode(GameMessage message, MessageCodec codec) throws IOException {
+        byte[] payload = codec.encode(message);
+        int length = payload.length;
+        if (!isValidLength(length)) {
+            throw new IOException("消息过大: " + length + " 字节");
+        }
+
+        int headerSize = headerSize(length);
+        byte[] frame = new byte[headerSize + length];
+        int pos = 0;
+        int value = length;
+        while ((value & ~0x7F) != 0) {
+            frame[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        frame[pos] = (byte) value;
+        System.arraycopy(payload, 0, frame, headerSize, length);
+        return frame;
+    }
+
+    /**
+     * 长度头占用的字节数
+     */
+    public static int headerSize(int length) {
+        if (length < (1 << 7)) {
+            return 1;
+        }
+        return length < (1 << 14) ? 2 : 3;
+    }
+
+    /**
+     * 检查帧长度是否合法
+     */
+    public static boolean isValidLength(int length) {
+        return length > 0 && length <= MAX_FRAME_SIZE;
+    }
+
+    /**
+     * 从缓冲区当前位置读取帧长度（不移动 position）
+     * 数据不足以解析出长度时返回 -1，长度头格式错误时返回 0
+     */
+    public static int peekLength(ByteBuffer buffer) {
+        int value = 0;
+        int pos = buffer.position();
+        for (int i = 0; i < MAX_HEADER_SIZE; i++) {
+            if (pos + i >= buffer.limit()) {
+                return -1;
+            }
+            int b = buffer.get(pos + i) & 0xFF;
+            value |= (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 写出一帧消息（调用方负责 flush）
+     */
+    public static void write(DataOutputStream out, GameMessage message, MessageCodec codec) throws IOException {
+        out.write(encode(message, codec));
+    }
+
+    /**
+     * 阻塞读取一帧消息
+     */
+    public static GameMessage read(DataInputStream in, MessageCodec codec) throws IOException {
+        int length = 0;
+        for (int i = 0; ; i++) {
+            if (i >= MAX_HEADER_SIZE) {
+                throw new StreamCorruptedException("消息长度头格式错误");
+            }
+            int b = in.readUnsignedByte();
+            length |= (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (!isValidLength(length)) {
+            throw new StreamCorruptedException("非法的消息长度: " + length);
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return codec.decode(payload, 0, length);
+    }
+}
@@ -0,0 +1,76 @@
+package com.achldm.chess.common;
+
+import java.io.*;
+
+/**
+ * 连接建立时的协议协商
+ *
+ * 客户端先发送4字节问候：'X' 'Q' 协议版本 期望的编解码器编号，
+ * 服务器回复1字节：最终使用的编解码器编号。
+ * 服务器不支持或未开启二进制协议时回复 Java 序列化，客户端随之降级。
+ */
+public final class ProtocolHandshake {
+    public static final int HELLO_SIZE = 4;
+    public static final int VERSION = 1;
+    private static final byte MAGIC_0 = 'X';
+    private static final byte MAGIC_1 = 'Q';
+
+    private ProtocolHandshake() {
+    }
+
+    /**
+     * 构造客户端问候
+     */
+    public static byte[] hello(int preferredCodec) {
+        return new byte[]{MAGIC_0, MAGIC_1, (byte) VERSION, (byte) preferredCodec};
+    }
+
+    /**
+     * 解析客户端问候，返回客户端期望的编解码器编号
+     */
+    public static int parseHello(byte[] data, int offset) throws IOException {
+        if (data[offset] != MAGIC_0 || data[offset + 1] != MAGIC_1) {
+            throw new StreamCorruptedException("无法识别的客户端协议");
+        }
+        if (data[offset + 2] != VERSION) {
+            throw new StreamCorruptedException("不支持的协议版本: " + data[offset + 2]);
+        }
+        return data[offset + 3];
+    }
+
+    /**
+     * 服务器根据客户端期望和自身配置选择编解码器
+     */
+    public static MessageCodec negotiate(int requestedCodec, boolean binaryEnabled) {
+        if (requestedCodec == MessageCodec.BINARY && binaryEnabled) {
+            return BinaryMessageCodec.INSTANCE;
+        }
+        return JavaSerializationCodec.INSTANCE;
+    }
+
+    /**
+     * 客户端发起协商，返回服务器选定的编解码器
+     */
+    public static MessageCodec clientHandshake(DataInputStream in, DataOutputStream out, int preferredCodec) throws IOException {
+        out.write(hello(preferredCodec));
+        out.flush();
+        int codecId = in.readUnsignedByte();
+        MessageCodec codec = MessageCodec.forId(codecId);
+        if (codec == null) {
+            throw new StreamCorruptedException("服务器选择了未知的编解码器: " + codecId);
+        }
+        return codec;
+    }
+
+    /**
+     * 服务器端（阻塞模式）完成协商，返回选定的编解码器
+     */
+    public static MessageCodec serverHandshake(DataInputStream in, DataOutputStream out, boolean binaryEnabled) throws IOException {
+        byte[] hello = new byte[HELLO_SIZE];
+        in.readFully(hello);
+        MessageCodec codec = negotiate(parseHello(hello, 0), binaryEnabled);
+        out.write(codec.getId());
+        out.flush();
+        return codec;
+    }
+}
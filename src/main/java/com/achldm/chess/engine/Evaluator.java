@@ -0,0 +1,42 @@
+package com.achldm.chess.engine;
+
+import com.achldm.chess.game.ChessBoard;
+
+/**
+ * 局面评估接口
+ *
+ * 返回值从当前行棋方的角度计算，分值越大对行棋方越有利（负极大值搜索直接使用），以兵 = 100 为单位。
+ * 实现需要足够快，搜索中每个叶子节点都会调用一次。
+ *
+ * 需要随走子增量更新内部状态的评估（例如神经网络的累加器）实现 reset / onMove / onUndoMove，
+ * 这类实例有状态，同一时间只能供一个搜索使用，并行搜索通过 fork 为每个线程创建自己的实例。
+ */
+public interface Evaluator {
+
+    int evaluate(ChessBoard board);
+
+    /**
+     * 搜索开始时调用，按 board 重新计算内部状态
+     */
+    default void reset(ChessBoard board) {
+    }
+
+    /**
+     * 搜索中棋盘执行 move 之后调用（Move 编码含移动和被吃的棋子）
+     */
+    default void onMove(int move) {
+    }
+
+    /**
+     * 搜索中棋盘撤销 move 之后调用
+     */
+    default void onUndoMove(int move) {
+    }
+
+    /**
+     * 返回供另一个搜索线程使用的实例，无状态的评估直接返回自身
+     */
+    default Evaluator fork() {
+        return this;
+    }
+}
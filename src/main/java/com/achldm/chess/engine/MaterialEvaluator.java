@@ -0,0 +1,20 @@
+package com.achldm.chess.engine;
+
+import com.achldm.chess.game.ChessBoard;
+
+/**
+ * 只计算双方子力差的评估，直接读取棋盘增量维护的子力分值，O(1)。
+ * 棋盘的子力分值以兵 = 10 计，这里乘以 10 换算成评估统一的单位
+ */
+public final class MaterialEvaluator implements Evaluator {
+    public static final MaterialEvaluator INSTANCE = new MaterialEvaluator();
+
+    private MaterialEvaluator() {
+    }
+
+    @Override
+    public int evaluate(ChessBoard board) {
+        int score = (board.getMaterial(true) - board.getMaterial(false)) * 10;
+        return board.isRedTurn() ? score : -score;
+    }
+}
@@ -0,0 +1,127 @@
+package com.achldm.chess.engine;
+
+import com.achldm.chess.game.ChessBoard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lazy SMP 并行搜索
+ *
+ * 主线程（调用 search 的线程）按正常方式迭代加深并负责时间控制和返回结果，
+ * threads - 1 个辅助线程同时从根节点搜索同一局面，奇数号辅助线程从深度 2 开始，
+ * 错开各线程的迭代深度。所有线程共享一个无锁置换表，辅助线程写入的结果让主线程更快完成搜索。
+ * 主线程结束后立即停止所有辅助线程，并等待它们退出后才返回，下一次搜索可以直接复用。
+ *
+ * 辅助线程为常驻的守护线程，不再使用时调用 shutdown。非线程安全，同一时间只能执行一次搜索。
+ */
+public class ParallelSearch {
+    private final TranspositionTable tt;
+    private final Search main;
+    private final Search[] helpers;
+    private final ExecutorService executor;
+
+    public ParallelSearch(Evaluator evaluator, TranspositionTable tt, int threads) {
+        this.tt = tt;
+        this.main = new Search(evaluator, tt);
+        this.helpers = new Search[Math.max(0, threads - 1)];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new Search(evaluator.fork(), tt);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = helpers.length == 0 ? null : Executors.newFixedThreadPool(helpers.length, r -> {
+            Thread thread = new Thread(r, "search-helper-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getThreadCount() {
+        return helpers.length + 1;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return tt;
+    }
+
+    /**
+     * 搜索当前局面的最佳走法，参数含义同 Search.search；返回主线程的结果，节点数为所有线程之和
+     */
+    public SearchResult search(ChessBoard position, int maxDepth, long timeMillis) {
+        if (helpers.length == 0) {
+            return main.search(position, maxDepth, timeMillis);
+        }
+        long start = System.nanoTime();
+        tt.newSearch();
+        List<Future<SearchResult>> futures = new ArrayList<>(helpers.length);
+        SearchResult result;
+        long helperNodes;
+        try {
+            for (int i = 0; i < helpers.length; i++) {
+                Search helper = helpers[i];
+                int startDepth = 1 + (i + 1) % 2;
+                helper.resetStop();
+                futures.add(executor.submit(() -> helper.helperSearch(position, maxDepth, startDepth)));
+            }
+
+            main.resetStop();
+            result = main.iterate(position, maxDepth, timeMillis, 1);
+        } finally {
+            // 主线程无论正常结束还是抛出异常，都先让辅助线程停下并等它们全部退出：
+            // 否则它们会继续写置换表，下一次 search 还会把仍在运行的 Search 再次提交
+            for (Search helper : helpers) {
+                helper.stop();
+            }
+            helperNodes = awaitHelpers(futures);
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(),
+                result.getNodes() + helperNodes, System.nanoTime() - start);
+    }
+
+    /**
+     * 等待所有辅助线程结束，返回它们的节点数之和。
+     * 期间被中断也继续等待（辅助线程已收到停止信号，很快就会返回），返回前恢复中断状态
+     */
+    private static long awaitHelpers(List<Future<SearchResult>> futures) {
+        long nodes = 0;
+        boolean interrupted = false;
+        for (Future<SearchResult> future : futures) {
+            while (true) {
+                try {
+                    nodes += future.get().getNodes();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    System.err.println("辅助搜索线程异常: " + e.getCause());
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return nodes;
+    }
+
+    /**
+     * 从其他线程中止正在进行的搜索
+     */
+    public void stop() {
+        main.stop();
+        for (Search helper : helpers) {
+            helper.stop();
+        }
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.achldm.chess.engine;
+
+import com.achldm.chess.game.ChessBoard;
+import com.achldm.chess.game.EvalParams;
+import com.achldm.chess.game.MoveTables;
+
+/**
+ * 手工评估：子力 + 位置分按局面阶段在中局、残局分值之间插值，再加上几项局面因素
+ *
+ * 子力和位置分由棋盘增量维护，这里直接读取，O(1)。局面因素只遍历双方棋子列表：
+ *   将帅安全   缺士、缺象扣分，按对方进攻子力的多少加权
+ *   炮         与对方将帅同线且中间无子（空头炮）或恰有一个炮架
+ *   灵活性     车可到达的格子数、马不被蹩腿的落点数
+ * 参数全部来自 EvalParams（/eval/eval.properties）。
+ */
+public final class PositionalEvaluator implements Evaluator {
+    public static final PositionalEvaluator INSTANCE = new PositionalEvaluator();
+
+    private static final int[] LINE_DELTAS = {-16, -1, 1, 16};
+    // 进攻子力满分（车算 2，马、炮算 1）
+    private static final int MAX_ATTACK_UNITS = 8;
+
+    private final int missingAdvisor = EvalParams.getInt("kingSafety.missingAdvisor", 30);
+    private final int missingElephant = EvalParams.getInt("kingSafety.missingElephant", 20);
+    private final int hollowCannon = EvalParams.getInt("cannon.hollow", 60);
+    private final int cannonScreen = EvalParams.getInt("cannon.screen", 15);
+    private final int chariotMobility = EvalParams.getInt("mobility.chariot", 4);
+    private final int horseMobility = EvalParams.getInt("mobility.horse", 8);
+
+    private PositionalEvaluator() {
+    }
+
+    @Override
+    public int evaluate(ChessBoard board) {
+        int phase = Math.min(board.getPhase(), EvalParams.MAX_PHASE);
+        int midgame = board.getMidgameScore(true) - board.getMidgameScore(false);
+        int endgame = board.getEndgameScore(true) - board.getEndgameScore(false);
+        int score = (midgame * phase + endgame * (EvalParams.MAX_PHASE - phase)) / EvalParams.MAX_PHASE;
+        score += positional(board, true) - positional(board, false);
+        return board.isRedTurn() ? score : -score;
+    }
+
+    private int positional(ChessBoard board, boolean red) {
+        int self = ChessBoard.sideTag(red);
+        int score = -kingDanger(board, red);
+        int enemyKing = board.getKingSquare(!red);
+        for (int i = 0; i < board.getPieceCount(red); i++) {
+            int sq = board.getPieceSquare(red, i);
+            switch (ChessBoard.typeOf(board.pieceAt(sq))) {
+                case ChessBoard.CHARIOT:
+                    score += chariotMobility * chariotMoves(board, sq, self);
+                    break;
+                case ChessBoard.HORSE:
+                    score += horseMobility * horseMoves(board, sq, self);
+                    break;
+                case ChessBoard.CANNON:
+                    if (enemyKing >= 0) {
+                        score += cannonThreat(board, sq, enemyKing);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * 缺士、缺象的扣分，对方进攻子力越多扣得越多
+     */
+    private int kingDanger(ChessBoard board, boolean red) {
+        int attackUnits = 2 * board.getPieceCount(!red, ChessBoard.CHARIOT)
+                + board.getPieceCount(!red, ChessBoard.HORSE) + board.getPieceCount(!red, ChessBoard.CANNON);
+        int missing = Math.max(0, 2 - board.getPieceCount(red, ChessBoard.ADVISOR)) * missingAdvisor
+                + Math.max(0, 2 - board.getPieceCount(red, ChessBoard.ELEPHANT)) * missingElephant;
+        return missing * Math.min(attackUnits, MAX_ATTACK_UNITS) / MAX_ATTACK_UNITS;
+    }
+
+    private static int chariotMoves(ChessBoard board, int sq, int self) {
+        int count = 0;
+        for (int delta : LINE_DELTAS) {
+            int to = sq + delta;
+            int piece;
+            while ((piece = board.pieceAt(to)) == ChessBoard.EMPTY) {
+                count++;
+                to += delta;
+            }
+            if ((piece & (ChessBoard.RED | ChessBoard.BLACK) & ~self) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int horseMoves(ChessBoard board, int sq, int self) {
+        int[] targets = MoveTables.HORSE_MOVES[sq];
+        int[] legs = MoveTables.HORSE_LEGS[sq];
+        int count = 0;
+        for (int i = 0; i < targets.length; i++) {
+            if (board.pieceAt(legs[i]) == ChessBoard.EMPTY && (board.pieceAt(targets[i]) & self) == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 炮与对方将帅在同一行或同一列时，按中间的棋子数给分
+     */
+    private int cannonThreat(ChessBoard board, int sq, int king) {
+        int delta;
+        if ((sq & 15) == (king & 15)) {
+            delta = king > sq ? 16 : -16;
+        } else if ((sq >> 4) == (king >> 4)) {
+            delta = king > sq ? 1 : -1;
+        } else {
+            return 0;
+        }
+        int between = 0;
+        for (int to = sq + delta; to != king; to += delta) {
+            if (board.pieceAt(to) != ChessBoard.EMPTY && ++between > 1) {
+                return 0;
+            }
+        }
+        return between == 0 ? hollowCannon : cannonScreen;
+    }
+}
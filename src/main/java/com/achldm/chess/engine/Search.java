@@ -0,0 +1,478 @@
+package com.achldm.chess.engine;
+
+import com.achldm.chess.game.ChessBoard;
+import com.achldm.chess.game.Move;
+
+/**
+ * 搜索引擎：负极大值 alpha-beta + 迭代加深 + 期望窗口 + 置换表
+ *
+ * 主要变例搜索（PVS）：每个节点第一个走法用完整窗口，其余先用零窗口试探，超过 alpha 再重新搜索。
+ * 走法排序：置换表走法、吃子（MVV-LVA：先吃价值高的，同样的目标先用价值低的棋子吃）、
+ * 杀手走法（同一层最近引起截断的两个非吃子走法）、历史表分值（按棋子和目标格累计截断次数）。
+ * 生成全部走法后打分，每次选出剩余走法中分值最高的一个，截断发生得早时后面的走法不需要排序。
+ * 裁剪：空着裁剪（不被将军且有车马炮时让对方连走，仍不低于 beta 则直接截断）、
+ * 后期走法减少（靠后的非吃子、非将军走法少搜 1~2 层，超过 alpha 时按原深度重搜）。
+ * 深度耗尽后进入静态搜索，只搜索吃子（被将军时搜索全部应将走法），并用 delta 裁剪跳过
+ * 吃掉后也达不到 alpha 的吃子，避免在吃子交换的中途停下评估（水平线效应）。
+ *
+ * 每次 search 在棋盘副本上进行，调用方的棋盘不会被修改，服务器和客户端都可以直接使用。
+ * 时间控制基于截止时间：超过时间预算的一半不再开始新的迭代，到达截止时间立即中止当前迭代，
+ * 返回最后一次完成的迭代结果（深度 1 总会完成，保证有走法可用）。
+ *
+ * 无合法走法（将死或困毙）都判负；搜索路径上局面重复按和棋计分（不区分长将、长捉）。
+ * 一个 Search 对象同一时间只能执行一次搜索；置换表可以在多个 Search 之间共享（见 ParallelSearch）。
+ */
+public class Search {
+    public static final int MAX_PLY = 64;
+    public static final int MATE = 30000;
+    /** 超过此值的分值表示杀棋（MATE - 距离杀棋的步数） */
+    public static final int MATE_BOUND = MATE - MAX_PLY;
+    private static final int INFINITY = 32000;
+    // 期望窗口初始半宽（评估以兵 = 100 为单位）
+    private static final int ASPIRATION_WINDOW = 50;
+    // 每隔多少个节点检查一次时间
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    // delta 裁剪的余量（两个兵）
+    private static final int DELTA_MARGIN = 200;
+    // 走法排序分值：置换表走法 > 吃子 > 杀手走法 > 历史表
+    private static final int HASH_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 29;
+    private static final int KILLER_SCORE = 1 << 28;
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private final Evaluator evaluator;
+    private final TranspositionTable tt;
+    // 每层一个走法缓冲区，搜索中不分配对象
+    private final int[][] moveBuffers = new int[MAX_PLY][ChessBoard.MAX_MOVES];
+    private final int[][] scoreBuffers = new int[MAX_PLY][ChessBoard.MAX_MOVES];
+    // 搜索路径上每一层的局面哈希，用于判断重复；nullMoveAt[ply] 表示该层局面由空着得到
+    private final long[] hashStack = new long[MAX_PLY + 1];
+    private final boolean[] nullMoveAt = new boolean[MAX_PLY + 1];
+    // 杀手走法（每层两个，只保存起点、终点）和历史表 [棋子编码][目标格]
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[ChessBoard.OFF_BOARD][ChessBoard.BOARD_SIZE];
+
+    private ChessBoard board;
+    private long nodes;
+    private long deadline;
+    private int completedDepth;
+    private int rootBestMove;
+    private volatile boolean stopped;
+
+    public Search(Evaluator evaluator, TranspositionTable tt) {
+        this.evaluator = evaluator;
+        this.tt = tt;
+    }
+
+    public Search() {
+        this(PositionalEvaluator.INSTANCE, new TranspositionTable(16));
+    }
+
+    /**
+     * 从其他线程中止正在进行的搜索，search 会尽快返回当前结果
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * 搜索当前局面的最佳走法
+     * @param maxDepth 最大深度
+     * @param timeMillis 时间预算（毫秒），0 或负数表示不限时间
+     */
+    public SearchResult search(ChessBoard position, int maxDepth, long timeMillis) {
+        stopped = false;
+        tt.newSearch();
+        return iterate(position, maxDepth, timeMillis, 1);
+    }
+
+    /**
+     * Lazy SMP 辅助线程的搜索：从 startDepth 开始迭代加深，不做时间控制，直到 maxDepth 或被 stop。
+     * 不重置停止标志，调用方在提交任务前先调用 resetStop，避免 stop 早于任务开始时被覆盖
+     */
+    SearchResult helperSearch(ChessBoard position, int maxDepth, int startDepth) {
+        return iterate(position, maxDepth, 0, startDepth);
+    }
+
+    void resetStop() {
+        stopped = false;
+    }
+
+    /**
+     * 迭代加深主循环（不重置停止标志，也不推进置换表代数，由调用方负责）
+     */
+    SearchResult iterate(ChessBoard position, int maxDepth, long timeMillis, int startDepth) {
+        long start = System.nanoTime();
+        board = position.copy();
+        evaluator.reset(board);
+        deadline = timeMillis > 0 ? start + timeMillis * 1_000_000L : Long.MAX_VALUE;
+        long softDeadline = timeMillis > 0 ? start + timeMillis * 500_000L : Long.MAX_VALUE;
+        nodes = 0;
+        completedDepth = 0;
+        rootBestMove = Move.NONE;
+        hashStack[0] = board.hash();
+        for (int[] pair : killers) {
+            pair[0] = pair[1] = Move.NONE;
+        }
+        // 历史表保留上一次搜索的一半，作为新搜索的初始排序依据
+        for (int[] row : history) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 1;
+            }
+        }
+
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        maxDepth = Math.min(maxDepth, MAX_PLY - 1);
+        for (int depth = startDepth; depth <= maxDepth; depth++) {
+            int score = searchRoot(depth, bestScore);
+            if (stopped) {
+                break;
+            }
+            bestMove = rootBestMove;
+            bestScore = score;
+            completedDepth = depth;
+            // 已经找到杀棋，或用时过半（下一次迭代大概率完成不了），结束迭代
+            if (bestMove == Move.NONE || Math.abs(score) >= MATE_BOUND || System.nanoTime() >= softDeadline) {
+                break;
+            }
+        }
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * 根节点搜索：深度较大时先用以上一次迭代分值为中心的窄窗口，失败后逐步放宽
+     */
+    private int searchRoot(int depth, int previousScore) {
+        if (depth < 4) {
+            return alphaBeta(depth, -INFINITY, INFINITY, 0, false);
+        }
+        int window = ASPIRATION_WINDOW;
+        int alpha = Math.max(previousScore - window, -INFINITY);
+        int beta = Math.min(previousScore + window, INFINITY);
+        while (true) {
+            int score = alphaBeta(depth, alpha, beta, 0, false);
+            if (stopped) {
+                return score;
+            }
+            if (score <= alpha && alpha > -INFINITY) {
+                alpha = Math.max(score - window, -INFINITY);
+            } else if (score >= beta && beta < INFINITY) {
+                beta = Math.min(score + window, INFINITY);
+            } else {
+                return score;
+            }
+            window *= 2;
+        }
+    }
+
+    private int alphaBeta(int depth, int alpha, int beta, int ply, boolean nullAllowed) {
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        countNode();
+        if (stopped) {
+            return 0;
+        }
+
+        long hash = hashStack[ply];
+        if (ply > 0) {
+            // 同一方走棋的局面在搜索路径上重复出现，按和棋处理（不跨越空着比较）
+            for (int i = ply - 2; i >= 0 && !nullMoveAt[i + 1] && !nullMoveAt[i + 2]; i -= 2) {
+                if (i <= ply - 4 && hashStack[i] == hash) {
+                    return 0;
+                }
+            }
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(board);
+        }
+
+        int hashMove = Move.NONE;
+        long entry = tt.probe(hash);
+        if (entry != TranspositionTable.MISS) {
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        boolean red = board.isRedTurn();
+        boolean inCheck = board.isInCheck();
+        // 空着裁剪：让对方连走两步仍然不低于 beta，说明当前局面足够好。
+        // 只剩兵士相时容易出现“等着”反而吃亏的局面，不做空着
+        if (nullAllowed && !inCheck && depth >= 3 && beta < MATE_BOUND && hasMajorPieces(red)) {
+            int reduction = depth >= 6 ? 3 : 2;
+            board.doNullMove();
+            hashStack[ply + 1] = board.hash();
+            nullMoveAt[ply + 1] = true;
+            int score = -alphaBeta(depth - 1 - reduction, -beta, -beta + 1, ply + 1, false);
+            nullMoveAt[ply + 1] = false;
+            board.undoNullMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                return score >= MATE_BOUND ? beta : score;
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = board.generateLegalMoves(moves);
+        if (count == 0) {
+            // 将死或困毙，越晚被杀分值越高
+            return -MATE + ply;
+        }
+        int[] scores = scoreBuffers[ply];
+        scoreMoves(moves, scores, count, hashMove, ply);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(moves, scores, i, count);
+            boolean quiet = !Move.isCapture(move);
+            makeMove(move);
+            hashStack[ply + 1] = board.hash();
+            int score;
+            if (i == 0) {
+                score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1, true);
+            } else {
+                // 后期走法减少：排在后面的普通走法很少是最佳走法，先少搜几层
+                int reduction = 0;
+                if (depth >= 3 && i >= 3 && quiet && !inCheck && scores[i] < KILLER_SCORE && !board.isInCheck()) {
+                    reduction = i >= 8 ? 2 : 1;
+                }
+                score = -alphaBeta(depth - 1 - reduction, -alpha - 1, -alpha, ply + 1, true);
+                if (score > alpha && reduction > 0) {
+                    score = -alphaBeta(depth - 1, -alpha - 1, -alpha, ply + 1, true);
+                }
+                if (score > alpha && score < beta) {
+                    score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1, true);
+                }
+            }
+            unmakeMove(move);
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    if (ply == 0) {
+                        rootBestMove = move;
+                    }
+                    if (alpha >= beta) {
+                        if (quiet) {
+                            updateQuietCutoff(move, depth, ply);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.BOUND_LOWER
+                : bestScore > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        tt.store(hash, Move.squares(bestMove), scoreToTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    /**
+     * 静态搜索：只搜索吃子，直到局面平稳；被将军时搜索全部应将走法
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        countNode();
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(board);
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count;
+        int standPat = 0;
+        int bestScore;
+        boolean inCheck = board.isInCheck();
+        if (inCheck) {
+            count = board.generateLegalMoves(moves);
+            if (count == 0) {
+                return -MATE + ply;
+            }
+            bestScore = -INFINITY;
+        } else {
+            // 不吃子时的静态评估作为下限
+            standPat = evaluator.evaluate(board);
+            if (standPat >= beta) {
+                return standPat;
+            }
+            // 吃掉对方的车也追不上 alpha，不必再试任何吃子
+            if (standPat + captureValue(ChessBoard.CHARIOT) + DELTA_MARGIN <= alpha) {
+                return standPat;
+            }
+            if (standPat > alpha) {
+                alpha = standPat;
+            }
+            bestScore = standPat;
+            count = board.generateLegalCaptures(moves);
+        }
+        int[] scores = scoreBuffers[ply];
+        scoreMoves(moves, scores, count, Move.NONE, ply);
+
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(moves, scores, i, count);
+            // delta 裁剪：吃掉这个子再加上余量仍然达不到 alpha
+            if (!inCheck && standPat + captureValue(ChessBoard.typeOf(Move.captured(move))) + DELTA_MARGIN <= alpha) {
+                continue;
+            }
+            makeMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            unmakeMove(move);
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    /**
+     * 在棋盘上执行走法，并通知评估函数更新增量状态
+     */
+    private void makeMove(int move) {
+        board.doMove(move);
+        evaluator.onMove(move);
+    }
+
+    private void unmakeMove(int move) {
+        board.undoMove(move);
+        evaluator.onUndoMove(move);
+    }
+
+    /**
+     * 吃掉某类棋子的收益估计（棋盘子力分值以兵 = 10 计，换算成评估单位）
+     */
+    private static int captureValue(int type) {
+        return ChessBoard.pieceValue(type) * 10;
+    }
+
+    private void countNode() {
+        if ((++nodes & (TIME_CHECK_INTERVAL - 1)) == 0 && completedDepth > 0 && System.nanoTime() >= deadline) {
+            stopped = true;
+        }
+    }
+
+    /**
+     * 某一方是否还有车、马、炮（空着裁剪的前提）
+     */
+    private boolean hasMajorPieces(boolean red) {
+        return board.getPieceCount(red, ChessBoard.CHARIOT) + board.getPieceCount(red, ChessBoard.HORSE)
+                + board.getPieceCount(red, ChessBoard.CANNON) > 0;
+    }
+
+    /**
+     * 给走法打排序分
+     */
+    private void scoreMoves(int[] moves, int[] scores, int count, int hashMove, int ply) {
+        int killer1 = killers[ply][0];
+        int killer2 = killers[ply][1];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int squares = Move.squares(move);
+            int score;
+            if (squares == hashMove) {
+                score = HASH_MOVE_SCORE;
+            } else if (Move.isCapture(move)) {
+                score = CAPTURE_SCORE + ChessBoard.pieceValue(ChessBoard.typeOf(Move.captured(move))) * 100
+                        - ChessBoard.pieceValue(ChessBoard.typeOf(Move.piece(move)));
+            } else if (squares == killer1) {
+                score = KILLER_SCORE + 1;
+            } else if (squares == killer2) {
+                score = KILLER_SCORE;
+            } else {
+                score = history[Move.piece(move)][Move.to(move)];
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * 从 start 之后选出分值最高的走法交换到 start 位置并返回
+     */
+    private static int pickNext(int[] moves, int[] scores, int start, int count) {
+        int best = start;
+        for (int i = start + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != start) {
+            int move = moves[best];
+            moves[best] = moves[start];
+            moves[start] = move;
+            int score = scores[best];
+            scores[best] = scores[start];
+            scores[start] = score;
+        }
+        return moves[start];
+    }
+
+    /**
+     * 非吃子走法引起截断：记为杀手走法，并增加历史表分值（深度越大权重越高）
+     */
+    private void updateQuietCutoff(int move, int depth, int ply) {
+        int squares = Move.squares(move);
+        if (killers[ply][0] != squares) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = squares;
+        }
+        int[] row = history[Move.piece(move)];
+        row[Move.to(move)] += depth * depth;
+        if (row[Move.to(move)] >= HISTORY_LIMIT) {
+            for (int[] r : history) {
+                for (int i = 0; i < r.length; i++) {
+                    r[i] >>= 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * 杀棋分值在置换表中按“距当前局面的步数”保存，读取时换算回距根节点的步数
+     */
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,45 @@
+package com.achldm.chess.engine;
+
+import com.achldm.chess.game.Move;
+
+/**
+ * 一次搜索的结果：最佳走法（Move 编码，无合法走法时为 Move.NONE）、分值、完成的深度和统计
+ */
+public final class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getBestMove() { return bestMove; }
+    public int getScore() { return score; }
+    public int getDepth() { return depth; }
+    public long getNodes() { return nodes; }
+    public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+    public long getNodesPerSecond() {
+        return nodes * 1_000_000_000L / Math.max(1, elapsedNanos);
+    }
+
+    /**
+     * 分值是否表示能在有限步内将死对方（或被将死）
+     */
+    public boolean isMateScore() {
+        return Math.abs(score) >= Search.MATE_BOUND;
+    }
+
+    @Override
+    public String toString() {
+        return "深度 " + depth + " 分值 " + score + " 走法 " + Move.toString(bestMove)
+                + " 节点 " + nodes + " 耗时 " + getElapsedMillis() + "ms";
+    }
+}
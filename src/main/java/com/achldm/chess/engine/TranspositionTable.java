@@ -0,0 +1,98 @@
+package com.achldm.chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * 置换表：以 Zobrist 哈希为键、固定大小、无锁，全部数据存放在一个 long[] 中
+ *
+ * 每个条目占两个 long：[键 ^ 数据, 数据]。数据的各个位：
+ *   0~15  最佳走法（Move 编码的起点、终点部分）
+ *   16~31 分值（有符号 16 位）
+ *   32~39 搜索深度
+ *   40~41 分值类型（EXACT / LOWER / UPPER）
+ *   42~49 写入时的搜索代数
+ * 多个搜索线程并发读写时不加锁：读到另一线程写了一半的条目时，键 ^ 数据 与哈希对不上，
+ * 按未命中处理即可（64 位 JVM 上单个 long 的读写是原子的）。
+ */
+public final class TranspositionTable {
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2;   // 分值 >= 记录值（发生 beta 截断）
+    public static final int BOUND_UPPER = 3;   // 分值 <= 记录值（所有走法都没有超过 alpha）
+
+    /** probe 未命中时的返回值（命中的数据分值类型非 0，不会等于它） */
+    public static final long MISS = 0;
+
+    private final long[] table;
+    private final int mask;
+    private int generation;
+
+    /**
+     * @param megabytes 占用内存（按 2 的幂向下取整）
+     */
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(1024, (long) megabytes * 1024 * 1024 / 16);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 28));
+        this.table = new long[size * 2];
+        this.mask = size - 1;
+    }
+
+    /**
+     * 开始新的一次搜索：旧代数的条目优先被覆盖
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+    }
+
+    public long probe(long hash) {
+        int index = ((int) hash & mask) << 1;
+        long data = table[index + 1];
+        return (table[index] ^ data) == hash ? data : MISS;
+    }
+
+    /**
+     * 写入条目：不同局面、更深的搜索或旧代数的条目会被替换
+     */
+    public void store(long hash, int move, int score, int depth, int bound) {
+        int index = ((int) hash & mask) << 1;
+        long old = table[index + 1];
+        if ((table[index] ^ old) == hash) {
+            if (depth < depth(old) && generation(old) == generation && bound != BOUND_EXACT) {
+                return;
+            }
+            if (move == 0) {
+                move = move(old);   // 保留原来的最佳走法
+            }
+        }
+        long data = (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((long) Math.min(depth, 255) << 32)
+                | ((long) bound << 40)
+                | ((long) generation << 42);
+        table[index] = hash ^ data;
+        table[index + 1] = data;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 40) & 3;
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> 42) & 0xFF;
+    }
+}
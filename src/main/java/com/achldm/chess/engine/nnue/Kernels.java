@@ -0,0 +1,32 @@
+package com.achldm.chess.engine.nnue;
+
+/**
+ * 网络评估用到的 int16 向量运算。标量实现见 ScalarKernels；
+ * 使用 simd 配置编译时另有基于 jdk.incubator.vector 的 VectorKernels，运行时可用则优先使用
+ */
+interface Kernels {
+
+    /** acc[accOffset + i] += weights[weightOffset + i]，i < length */
+    void add(short[] acc, int accOffset, short[] weights, int weightOffset, int length);
+
+    /** acc[accOffset + i] -= weights[weightOffset + i]，i < length */
+    void sub(short[] acc, int accOffset, short[] weights, int weightOffset, int length);
+
+    /**
+     * 输出层：两个视角的累加器截断到 [0, QA] 后与输出权重做点积
+     * （us 对应 weights[0, hidden)，them 对应 weights[hidden, 2 * hidden)）
+     */
+    int forward(short[] acc, int usOffset, int themOffset, short[] weights, int hidden);
+
+    static Kernels best() {
+        if (!Boolean.getBoolean("chess.nnue.scalar")) {
+            try {
+                Class<?> type = Class.forName("com.achldm.chess.engine.nnue.VectorKernels");
+                return (Kernels) type.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // 未使用 simd 配置编译，或运行时没有加 --add-modules jdk.incubator.vector
+            }
+        }
+        return ScalarKernels.INSTANCE;
+    }
+}
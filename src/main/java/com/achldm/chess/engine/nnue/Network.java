@@ -0,0 +1,182 @@
+package com.achldm.chess.engine.nnue;
+
+import com.achldm.chess.game.ChessBoard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * 可增量更新的神经网络（NNUE）权重
+ *
+ * 结构：输入为“棋子-格子”特征（己方/对方 × 7 类棋子 × 90 格 = 1260 个），每一方视角各一个累加器，
+ * 输入层 1260 -> hidden，权重和累加器都是 int16；评估时按行棋方在前拼接两个累加器，
+ * 截断到 [0, QA] 后与 int16 输出权重做点积，再加输出偏置，乘以 SCALE / (QA * QB) 得到以兵 = 100 计的分值。
+ *
+ * 文件格式（小端）：
+ *   int32 MAGIC, int32 VERSION, int32 输入数（1260）, int32 hidden
+ *   int16 输入层权重 [输入][hidden]，int16 输入层偏置 [hidden]
+ *   int16 输出层权重 [2 * hidden]（前一半对应行棋方视角），int32 输出偏置
+ * 加载时内存映射只用于读取文件，权重随即复制到堆上的 short 数组（内核按数组下标访问），
+ * 映射在 load 返回后即不再使用，每个进程各持有一份权重。
+ */
+public final class Network {
+    public static final int MAGIC = 0x4E4E5158;   // "XQNN"
+    public static final int VERSION = 1;
+    public static final int INPUTS = 2 * 7 * ChessBoard.BOARD_WIDTH * ChessBoard.BOARD_HEIGHT;
+    /** 隐藏层激活值的截断上限 */
+    public static final int QA = 255;
+    /** 输出层权重的量化倍数 */
+    public static final int QB = 64;
+    /** 输出换算成分值的倍数 */
+    public static final int SCALE = 400;
+    // 特征编号表 [视角][棋子编码][格子]，见 featureIndex
+    private static final int[][][] FEATURE_INDEX = new int[2][ChessBoard.OFF_BOARD][ChessBoard.BOARD_SIZE];
+
+    static {
+        for (int perspective = 0; perspective < 2; perspective++) {
+            for (int type = ChessBoard.KING; type <= ChessBoard.SOLDIER; type++) {
+                for (int side : new int[]{ChessBoard.RED, ChessBoard.BLACK}) {
+                    int code = side + type;
+                    for (int y = 0; y < ChessBoard.BOARD_HEIGHT; y++) {
+                        for (int x = 0; x < ChessBoard.BOARD_WIDTH; x++) {
+                            int sq = ChessBoard.square(x, y);
+                            FEATURE_INDEX[perspective][code][sq] = computeFeatureIndex(perspective, code, sq);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    final int hidden;
+    final short[] featureWeights;
+    final short[] featureBias;
+    final short[] outputWeights;
+    final int outputBias;
+
+    private Network(int hidden, short[] featureWeights, short[] featureBias, short[] outputWeights, int outputBias) {
+        this.hidden = hidden;
+        this.featureWeights = featureWeights;
+        this.featureBias = featureBias;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    public int getHiddenSize() {
+        return hidden;
+    }
+
+    /**
+     * 从文件加载网络
+     */
+    public static Network load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.remaining() < 16 || buf.getInt() != MAGIC) {
+                throw new IOException("不是网络权重文件: " + path);
+            }
+            int version = buf.getInt();
+            int inputs = buf.getInt();
+            int hidden = buf.getInt();
+            if (version != VERSION || inputs != INPUTS || hidden <= 0) {
+                throw new IOException("不支持的网络: 版本 " + version + "，输入 " + inputs + "，隐藏层 " + hidden);
+            }
+            long expected = 16 + 2L * ((long) INPUTS * hidden + hidden + 2L * hidden) + 4;
+            if (channel.size() != expected) {
+                throw new IOException("网络文件大小应为 " + expected + " 字节，实际 " + channel.size());
+            }
+            short[] featureWeights = readShorts(buf, INPUTS * hidden);
+            short[] featureBias = readShorts(buf, hidden);
+            short[] outputWeights = readShorts(buf, 2 * hidden);
+            return new Network(hidden, featureWeights, featureBias, outputWeights, buf.getInt());
+        }
+    }
+
+    private static short[] readShorts(ByteBuffer buf, int count) {
+        short[] values = new short[count];
+        buf.asShortBuffer().get(values);
+        buf.position(buf.position() + 2 * count);
+        return values;
+    }
+
+    /**
+     * 按文件格式保存网络（训练工具导出权重、测试生成文件时使用）
+     */
+    public void save(Path path) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(16 + 2 * (featureWeights.length + featureBias.length + outputWeights.length) + 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(INPUTS).putInt(hidden);
+        buf.asShortBuffer().put(featureWeights).put(featureBias).put(outputWeights);
+        buf.position(buf.position() + 2 * (featureWeights.length + featureBias.length + outputWeights.length));
+        buf.putInt(outputBias);
+        buf.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        }
+    }
+
+    /**
+     * 随机初始化的网络，只用于测试和基准（评估结果没有意义）
+     */
+    public static Network random(int hidden, long seed) {
+        Random random = new Random(seed);
+        short[] featureWeights = new short[INPUTS * hidden];
+        for (int i = 0; i < featureWeights.length; i++) {
+            featureWeights[i] = (short) (random.nextInt(33) - 16);
+        }
+        short[] featureBias = new short[hidden];
+        for (int i = 0; i < hidden; i++) {
+            featureBias[i] = (short) random.nextInt(64);
+        }
+        short[] outputWeights = new short[2 * hidden];
+        for (int i = 0; i < outputWeights.length; i++) {
+            outputWeights[i] = (short) (random.nextInt(2 * QB + 1) - QB);
+        }
+        return new Network(hidden, featureWeights, featureBias, outputWeights, 0);
+    }
+
+    /**
+     * 特征编号：从 perspective 一方（0 红方，1 黑方）看，code 棋子位于 sq 格。
+     * 黑方视角把棋盘旋转 180 度，双方共用同一套权重
+     */
+    static int featureIndex(int perspective, int code, int sq) {
+        return FEATURE_INDEX[perspective][code][sq];
+    }
+
+    private static int computeFeatureIndex(int perspective, int code, int sq) {
+        int side = (code & ChessBoard.RED) != 0 ? 0 : 1;
+        int x = ChessBoard.fileOf(sq);
+        int y = ChessBoard.rankOf(sq);
+        if (perspective == 1) {
+            x = ChessBoard.BOARD_WIDTH - 1 - x;
+            y = ChessBoard.BOARD_HEIGHT - 1 - y;
+        }
+        int relative = side == perspective ? 0 : 1;
+        return ((relative * 7 + ChessBoard.typeOf(code)) * ChessBoard.BOARD_HEIGHT + y) * ChessBoard.BOARD_WIDTH + x;
+    }
+
+    /**
+     * 生成随机网络文件，用于试用和基准测试
+     * 用法: java -cp target/classes com.achldm.chess.engine.nnue.Network 文件 [隐藏层大小]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法: Network 文件 [隐藏层大小]");
+            return;
+        }
+        int hidden = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        random(hidden, 1).save(Paths.get(args[0]));
+        System.out.println("已生成随机网络 " + args[0] + "，隐藏层 " + hidden);
+    }
+}
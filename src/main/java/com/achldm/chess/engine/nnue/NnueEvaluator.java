@@ -0,0 +1,112 @@
+package com.achldm.chess.engine.nnue;
+
+import com.achldm.chess.engine.Evaluator;
+import com.achldm.chess.game.ChessBoard;
+import com.achldm.chess.game.Move;
+
+/**
+ * 神经网络评估（NNUE），可替换手工评估使用
+ *
+ * 红黑两个视角的累加器（各 hidden 个 int16）在搜索开始时按局面计算一次，之后每走一步只需
+ * 减去离开格子、被吃棋子的特征权重并加上到达格子的特征权重；int16 加减可以精确撤销，
+ * 撤销走法时反向更新即可，不需要保存每一层的累加器。评估时只剩一次输出层点积。
+ *
+ * 有状态，每个搜索线程一个实例（fork 共享网络权重）。
+ * 用 mvn -P simd 构建并以 --add-modules jdk.incubator.vector 启动时，向量运算使用 SIMD 实现，否则使用标量实现，
+ * 两者结果完全相同。
+ */
+public final class NnueEvaluator implements Evaluator {
+    private final Network network;
+    private final Kernels kernels;
+    private final int hidden;
+    // [红方视角 hidden 个 | 黑方视角 hidden 个]，包内可见供 NnueSelfCheck 对比
+    final short[] accumulator;
+
+    /**
+     * 自动选择实现：运行时支持 Vector API 时使用 SIMD，否则使用标量实现
+     */
+    public NnueEvaluator(Network network) {
+        this(network, Kernels.best());
+    }
+
+    /**
+     * @param vectorized false 时强制使用标量实现（对比测试用）
+     */
+    public NnueEvaluator(Network network, boolean vectorized) {
+        this(network, vectorized ? Kernels.best() : ScalarKernels.INSTANCE);
+    }
+
+    NnueEvaluator(Network network, Kernels kernels) {
+        this.network = network;
+        this.kernels = kernels;
+        this.hidden = network.hidden;
+        this.accumulator = new short[2 * hidden];
+    }
+
+    /**
+     * 是否使用了 Vector API 实现
+     */
+    public boolean isVectorized() {
+        return kernels != ScalarKernels.INSTANCE;
+    }
+
+    @Override
+    public void reset(ChessBoard board) {
+        System.arraycopy(network.featureBias, 0, accumulator, 0, hidden);
+        System.arraycopy(network.featureBias, 0, accumulator, hidden, hidden);
+        for (int side = 0; side < 2; side++) {
+            boolean red = side == 0;
+            for (int i = 0; i < board.getPieceCount(red); i++) {
+                int sq = board.getPieceSquare(red, i);
+                addFeature(board.pieceAt(sq), sq);
+            }
+        }
+    }
+
+    @Override
+    public void onMove(int move) {
+        int piece = Move.piece(move);
+        int captured = Move.captured(move);
+        subFeature(piece, Move.from(move));
+        addFeature(piece, Move.to(move));
+        if (captured != ChessBoard.EMPTY) {
+            subFeature(captured, Move.to(move));
+        }
+    }
+
+    @Override
+    public void onUndoMove(int move) {
+        int piece = Move.piece(move);
+        int captured = Move.captured(move);
+        subFeature(piece, Move.to(move));
+        addFeature(piece, Move.from(move));
+        if (captured != ChessBoard.EMPTY) {
+            addFeature(captured, Move.to(move));
+        }
+    }
+
+    @Override
+    public int evaluate(ChessBoard board) {
+        int us = board.isRedTurn() ? 0 : hidden;
+        int them = hidden - us;
+        int sum = kernels.forward(accumulator, us, them, network.outputWeights, hidden) + network.outputBias;
+        return (int) ((long) sum * Network.SCALE / (Network.QA * Network.QB));
+    }
+
+    @Override
+    public Evaluator fork() {
+        return new NnueEvaluator(network, kernels);
+    }
+
+    private void addFeature(int code, int sq) {
+        short[] weights = network.featureWeights;
+        kernels.add(accumulator, 0, weights, Network.featureIndex(0, code, sq) * hidden, hidden);
+        kernels.add(accumulator, hidden, weights, Network.featureIndex(1, code, sq) * hidden, hidden);
+    }
+
+    private void subFeature(int code, int sq) {
+        short[] weights = network.featureWeights;
+        kernels.sub(accumulator, 0, weights, Network.featureIndex(0, code, sq) * hidden, hidden);
+        kernels.sub(accumulator, hidden, weights, Network.featureIndex(1, code, sq) * hidden, hidden);
+    }
+}
@@ -0,0 +1,39 @@
+package com.achldm.chess.engine.nnue;
+
+/**
+ * 标量实现（不依赖 Vector API，任何 JDK 都可用）
+ */
+final class ScalarKernels implements Kernels {
+    static final ScalarKernels INSTANCE = new ScalarKernels();
+
+    private ScalarKernels() {
+    }
+
+    @Override
+    public void add(short[] acc, int accOffset, short[] weights, int weightOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            acc[accOffset + i] += weights[weightOffset + i];
+        }
+    }
+
+    @Override
+    public void sub(short[] acc, int accOffset, short[] weights, int weightOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            acc[accOffset + i] -= weights[weightOffset + i];
+        }
+    }
+
+    @Override
+    public int forward(short[] acc, int usOffset, int themOffset, short[] weights, int hidden) {
+        int sum = 0;
+        for (int i = 0; i < hidden; i++) {
+            sum += clamp(acc[usOffset + i]) * weights[i];
+            sum += clamp(acc[themOffset + i]) * weights[hidden + i];
+        }
+        return sum;
+    }
+
+    private static int clamp(short value) {
+        return Math.min(Math.max(value, 0), Network.QA);
+    }
+}
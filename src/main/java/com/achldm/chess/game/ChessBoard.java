@@ -2,94 +2,428 @@ package com.achldm.chess.game;
 
 import com.achldm.chess.common.ChessPiece;
 
+import java.util.Arrays;
+import java.util.Random;
+
 /**
  * 象棋棋盘类
+ *
+ * 内部使用 16x16 的一维 byte 数组（带哨兵的信箱结构）表示棋盘：
+ * 棋盘坐标 (x, y) 对应格子 (y + 3) * 16 + (x + 3)，棋盘外一圈填充 OFF_BOARD，
+ * 越界判断只需一次查表，走法增量（上下 ±16、左右 ±1）不需要分别检查行列。
+ *
+ * 棋子编码：红方 8 + 类型，黑方 16 + 类型，类型见 KING ~ SOLDIER，
+ * 因此 (piece & 8) / (piece & 16) 即可判断颜色。另外为双方各维护一个棋子列表，
+ * 遍历某一方的棋子不需要扫描整个棋盘。
+ *
+ * 棋盘同时增量维护 64 位 Zobrist 哈希（每个棋子/格子组合一个随机数，黑方走棋再异或一个），
+ * 判断局面是否相同只需比较 hash()。将帅位置、各类棋子数量和双方子力分值也随走子增量维护，
+ * 终局、将军和子力判断不需要扫描棋盘。评估用的中局/残局分值（子力 + 位置分）和局面阶段
+ * 同样随走子增量更新，搜索的叶子节点不需要扫描棋盘计算这些分值。
  */
 public class ChessBoard {
     public static final int BOARD_WIDTH = 9;
     public static final int BOARD_HEIGHT = 10;
-    
-    private ChessPiece[][] board;
+
+    // 棋子类型
+    public static final int KING = 0;
+    public static final int ADVISOR = 1;
+    public static final int ELEPHANT = 2;
+    public static final int HORSE = 3;
+    public static final int CHARIOT = 4;
+    public static final int CANNON = 5;
+    public static final int SOLDIER = 6;
+
+    // 棋子编码
+    public static final int EMPTY = 0;
+    public static final int RED = 8;
+    public static final int BLACK = 16;
+    public static final int OFF_BOARD = 32;
+
+    public static final int BOARD_SIZE = 256;
+    private static final int PADDING = 3;
+    private static final int MAX_PIECES = 16;  // 每方最多16个棋子
+    // 每方各类棋子的数量上限（开局数量），FEN 局面不能超过，走法数才不会超过 MAX_MOVES
+    private static final int[] MAX_TYPE_COUNTS = {1, 2, 2, 2, 2, 2, 5};
+    /** 任意局面的走法数上限，走法缓冲区按此大小分配即可 */
+    public static final int MAX_MOVES = 128;
+    // 各类棋子的子力分值（兵10、仕相20、马40、炮45、车90，将帅不计）
+    private static final int[] PIECE_VALUES = {0, 20, 20, 40, 90, 45, 10};
+    // 车、炮及将帅照面检测的四个直线方向
+    private static final int[] LINE_DELTAS = {-16, -1, 1, 16};
+
+    // 格子是否在棋盘内
+    private static final boolean[] IN_BOARD = new boolean[BOARD_SIZE];
+    // 格子是否在九宫内
+    private static final boolean[] IN_PALACE = new boolean[BOARD_SIZE];
+    // 编码 -> ChessPiece，ChessPiece 序号 -> 编码
+    private static final ChessPiece[] PIECE_OF_CODE = new ChessPiece[OFF_BOARD + 1];
+    private static final byte[] CODE_OF_PIECE = new byte[ChessPiece.values().length];
+    // FEN 字符 -> 编码（未知字符为 EMPTY），编码 -> FEN 字符
+    private static final byte[] CODE_OF_FEN_CHAR = new byte[128];
+    private static final char[] FEN_CHAR_OF_CODE = new char[OFF_BOARD];
+    // Zobrist 随机数：[棋子编码][格子]，以及黑方走棋时的附加值。固定种子，不同进程间哈希一致
+    private static final long[][] ZOBRIST_PIECES = new long[OFF_BOARD][BOARD_SIZE];
+    private static final long ZOBRIST_BLACK_TO_MOVE;
+
+    static {
+        for (int y = 0; y < BOARD_HEIGHT; y++) {
+            for (int x = 0; x < BOARD_WIDTH; x++) {
+                int sq = square(x, y);
+                IN_BOARD[sq] = true;
+                IN_PALACE[sq] = x >= 3 && x <= 5 && (y <= 2 || y >= 7);
+            }
+        }
+        Arrays.fill(PIECE_OF_CODE, ChessPiece.EMPTY);
+        for (ChessPiece piece : ChessPiece.values()) {
+            int code = EMPTY;
+            if (!piece.isEmpty()) {
+                // ChessPiece 编号：红方 1~7，黑方 17~23，顺序与 KING ~ SOLDIER 一致
+                int type = (piece.getId() & 15) - 1;
+                code = (piece.isRed() ? RED : BLACK) + type;
+            }
+            PIECE_OF_CODE[code] = piece;
+            CODE_OF_PIECE[piece.ordinal()] = (byte) code;
+        }
+        String fenChars = "KABNRCP";
+        for (int type = KING; type <= SOLDIER; type++) {
+            char c = fenChars.charAt(type);
+            FEN_CHAR_OF_CODE[RED + type] = c;
+            FEN_CHAR_OF_CODE[BLACK + type] = Character.toLowerCase(c);
+            CODE_OF_FEN_CHAR[c] = (byte) (RED + type);
+            CODE_OF_FEN_CHAR[Character.toLowerCase(c)] = (byte) (BLACK + type);
+        }
+        // 部分软件用 E/H 表示象/马
+        CODE_OF_FEN_CHAR['E'] = RED + ELEPHANT;
+        CODE_OF_FEN_CHAR['e'] = BLACK + ELEPHANT;
+        CODE_OF_FEN_CHAR['H'] = RED + HORSE;
+        CODE_OF_FEN_CHAR['h'] = BLACK + HORSE;
+        Random random = new Random(0x5A0B_81C7_3E2DL);
+        for (int code = RED; code < OFF_BOARD; code++) {
+            for (int sq = 0; sq < BOARD_SIZE; sq++) {
+                ZOBRIST_PIECES[code][sq] = random.nextLong();
+            }
+        }
+        ZOBRIST_BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private final byte[] squares = new byte[BOARD_SIZE];
+    // 双方棋子列表（0 红方，1 黑方），pieceIndex 记录每个格子上的棋子在列表中的位置
+    private final int[][] pieceList = new int[2][MAX_PIECES];
+    private final int[] pieceCount = new int[2];
+    private final byte[] pieceIndex = new byte[BOARD_SIZE];
+    // 双方将帅所在格子（-1 表示不在棋盘上）、各类棋子数量、子力分值
+    private final int[] kingSquare = new int[2];
+    private final int[][] typeCount = new int[2][7];
+    private final int[] material = new int[2];
+    // 双方的中局、残局分值（子力 + 位置分，见 EvalParams）和局面阶段
+    private final int[] midgameScore = new int[2];
+    private final int[] endgameScore = new int[2];
+    private int phase;
     private boolean redTurn = true;  // 红方先行
-    
+    private long hash;
+    // hasLegalMove 使用的走法缓冲区，避免每次判断终局都分配数组
+    private final int[] scratchMoves = new int[MAX_MOVES];
+
     public ChessBoard() {
+        clear();
         initBoard();
     }
-    
+
     /**
-     * 初始化棋盘
+     * 创建空棋盘（不摆子）
      */
-    private void initBoard() {
-        board = new ChessPiece[BOARD_HEIGHT][BOARD_WIDTH];
-        
-        // 清空棋盘
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            for (int j = 0; j < BOARD_WIDTH; j++) {
-                board[i][j] = ChessPiece.EMPTY;
+    private ChessBoard(boolean empty) {
+        clear();
+    }
+
+    private void clear() {
+        Arrays.fill(squares, (byte) OFF_BOARD);
+        for (int sq = 0; sq < BOARD_SIZE; sq++) {
+            if (IN_BOARD[sq]) {
+                squares[sq] = EMPTY;
             }
         }
-        
+        pieceCount[0] = pieceCount[1] = 0;
+        kingSquare[0] = kingSquare[1] = -1;
+        Arrays.fill(typeCount[0], 0);
+        Arrays.fill(typeCount[1], 0);
+        material[0] = material[1] = 0;
+        midgameScore[0] = midgameScore[1] = 0;
+        endgameScore[0] = endgameScore[1] = 0;
+        phase = 0;
+        redTurn = true;
+        hash = 0;
+    }
+
+    /**
+     * 初始化棋盘
+     */
+    private void initBoard() {
         // 放置黑方棋子 - 正确顺序：车马象士将士象马车
-        // 第0行：黑方主力棋子
-        board[0][0] = board[0][8] = ChessPiece.BLACK_CHARIOT;  // 车
-        board[0][1] = board[0][7] = ChessPiece.BLACK_HORSE;    // 马
-        board[0][2] = board[0][6] = ChessPiece.BLACK_ELEPHANT; // 象
-        board[0][3] = board[0][5] = ChessPiece.BLACK_ADVISOR;  // 士
-        board[0][4] = ChessPiece.BLACK_KING;                   // 将
-        
-        // 第2行：黑方炮
-        board[2][1] = board[2][7] = ChessPiece.BLACK_CANNON;   // 炮
-        
-        // 第3行：黑方卒子
-        for (int i = 0; i < BOARD_WIDTH; i += 2) {
-            board[3][i] = ChessPiece.BLACK_SOLDIER;
-        }
-        
-        // 第4-5行：楚河汉界（空白区域）
-        // 这两行保持空白，形成楚河汉界
-        
-        // 第6行：红方兵
-        for (int i = 0; i < BOARD_WIDTH; i += 2) {
-            board[6][i] = ChessPiece.RED_SOLDIER;
-        }
-        
-        // 第7行：红方炮
-        board[7][1] = board[7][7] = ChessPiece.RED_CANNON;     // 炮
-        
-        // 第9行：红方主力棋子 - 正确顺序：车马相仕帅仕相马车
-        board[9][0] = board[9][8] = ChessPiece.RED_CHARIOT;    // 车
-        board[9][1] = board[9][7] = ChessPiece.RED_HORSE;      // 马
-        board[9][2] = board[9][6] = ChessPiece.RED_ELEPHANT;   // 相
-        board[9][3] = board[9][5] = ChessPiece.RED_ADVISOR;    // 仕
-        board[9][4] = ChessPiece.RED_KING;                     // 帅
-        
-        // 调试信息：打印初始棋盘布局
-        System.out.println("棋盘初始化完成：");
-        System.out.println("黑方卒子位置（第3行）：" + java.util.Arrays.toString(board[3]));
-        System.out.println("楚河汉界（第4行）：" + java.util.Arrays.toString(board[4]));
-        System.out.println("楚河汉界（第5行）：" + java.util.Arrays.toString(board[5]));
-        System.out.println("红方兵位置（第6行）：" + java.util.Arrays.toString(board[6]));
-    }
-    
+        int[] backRank = {CHARIOT, HORSE, ELEPHANT, ADVISOR, KING, ADVISOR, ELEPHANT, HORSE, CHARIOT};
+        for (int x = 0; x < BOARD_WIDTH; x++) {
+            addPiece(square(x, 0), BLACK + backRank[x]);
+            addPiece(square(x, 9), RED + backRank[x]);
+        }
+
+        // 炮
+        addPiece(square(1, 2), BLACK + CANNON);
+        addPiece(square(7, 2), BLACK + CANNON);
+        addPiece(square(1, 7), RED + CANNON);
+        addPiece(square(7, 7), RED + CANNON);
+
+        // 兵/卒（第4-5行为楚河汉界，保持空白）
+        for (int x = 0; x < BOARD_WIDTH; x += 2) {
+            addPiece(square(x, 3), BLACK + SOLDIER);
+            addPiece(square(x, 6), RED + SOLDIER);
+        }
+    }
+
+    // ==================== 格子与棋子编码 ====================
+
+    /**
+     * 棋盘坐标转换为格子编号
+     */
+    public static int square(int x, int y) {
+        return ((y + PADDING) << 4) + x + PADDING;
+    }
+
+    public static int fileOf(int sq) {
+        return (sq & 15) - PADDING;
+    }
+
+    public static int rankOf(int sq) {
+        return (sq >> 4) - PADDING;
+    }
+
+    public static boolean inBoard(int sq) {
+        return IN_BOARD[sq];
+    }
+
+    public static boolean inPalace(int sq) {
+        return IN_PALACE[sq];
+    }
+
+    /**
+     * 格子是否在红方一侧（第5-9行）
+     */
+    public static boolean isRedSide(int sq) {
+        return (sq & 0x80) != 0;
+    }
+
+    /**
+     * 棋子编码对应的一方标志（RED 或 BLACK）
+     */
+    public static int sideTag(boolean red) {
+        return red ? RED : BLACK;
+    }
+
+    public static int typeOf(int code) {
+        return code & 7;
+    }
+
+    /**
+     * 棋子类型的子力分值（兵10、仕相20、马40、炮45、车90，将帅为0）
+     */
+    public static int pieceValue(int type) {
+        return PIECE_VALUES[type];
+    }
+
+    public static ChessPiece toChessPiece(int code) {
+        return PIECE_OF_CODE[code];
+    }
+
+    public static int toCode(ChessPiece piece) {
+        return piece == null ? EMPTY : CODE_OF_PIECE[piece.ordinal()];
+    }
+
+    /**
+     * 获取格子上的棋子编码（棋盘外为 OFF_BOARD）
+     */
+    public int pieceAt(int sq) {
+        return squares[sq];
+    }
+
+    /**
+     * 某一方的棋子数量
+     */
+    public int getPieceCount(boolean red) {
+        return pieceCount[red ? 0 : 1];
+    }
+
+    /**
+     * 某一方某类棋子的数量
+     */
+    public int getPieceCount(boolean red, int type) {
+        return typeCount[red ? 0 : 1][type];
+    }
+
+    /**
+     * 某一方的子力分值（见 PIECE_VALUES）
+     */
+    public int getMaterial(boolean red) {
+        return material[red ? 0 : 1];
+    }
+
+    /**
+     * 某一方的中局分值（子力 + 位置分，见 EvalParams）
+     */
+    public int getMidgameScore(boolean red) {
+        return midgameScore[red ? 0 : 1];
+    }
+
+    /**
+     * 某一方的残局分值（子力 + 位置分，见 EvalParams）
+     */
+    public int getEndgameScore(boolean red) {
+        return endgameScore[red ? 0 : 1];
+    }
+
+    /**
+     * 局面阶段：0（纯残局）~ EvalParams.MAX_PHASE（子力齐全）
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * 某一方将帅所在格子，不在棋盘上时返回 -1
+     */
+    public int getKingSquare(boolean red) {
+        return kingSquare[red ? 0 : 1];
+    }
+
+    /**
+     * 某一方是否还有能过河进攻的子力（车、马、炮、兵）
+     */
+    public boolean hasAttackingPieces(boolean red) {
+        int[] counts = typeCount[red ? 0 : 1];
+        return counts[CHARIOT] + counts[HORSE] + counts[CANNON] + counts[SOLDIER] > 0;
+    }
+
+    /**
+     * 某一方第 index 个棋子所在格子（顺序不固定）
+     */
+    public int getPieceSquare(boolean red, int index) {
+        return pieceList[red ? 0 : 1][index];
+    }
+
+    // ==================== 棋子增删（同时维护棋子列表） ====================
+
+    private void addPiece(int sq, int code) {
+        int side = (code & RED) != 0 ? 0 : 1;
+        squares[sq] = (byte) code;
+        pieceIndex[sq] = (byte) pieceCount[side];
+        pieceList[side][pieceCount[side]++] = sq;
+        hash ^= ZOBRIST_PIECES[code][sq];
+        int type = typeOf(code);
+        typeCount[side][type]++;
+        material[side] += PIECE_VALUES[type];
+        midgameScore[side] += EvalParams.MIDGAME[code][sq];
+        endgameScore[side] += EvalParams.ENDGAME[code][sq];
+        phase += EvalParams.PHASE_WEIGHTS[type];
+        if (type == KING) {
+            kingSquare[side] = sq;
+        }
+    }
+
+    private void removePiece(int sq) {
+        int code = squares[sq];
+        int side = (code & RED) != 0 ? 0 : 1;
+        // 用列表最后一个棋子填补空位
+        int index = pieceIndex[sq];
+        int last = pieceList[side][--pieceCount[side]];
+        pieceList[side][index] = last;
+        pieceIndex[last] = (byte) index;
+        squares[sq] = EMPTY;
+        hash ^= ZOBRIST_PIECES[code][sq];
+        int type = typeOf(code);
+        typeCount[side][type]--;
+        material[side] -= PIECE_VALUES[type];
+        midgameScore[side] -= EvalParams.MIDGAME[code][sq];
+        endgameScore[side] -= EvalParams.ENDGAME[code][sq];
+        phase -= EvalParams.PHASE_WEIGHTS[type];
+        if (type == KING && kingSquare[side] == sq) {
+            kingSquare[side] = -1;
+        }
+    }
+
+    /**
+     * 移动棋子（不做合法性检查），返回被吃掉的棋子编码
+     */
+    private int makeMove(int from, int to) {
+        int captured = squares[to];
+        if (captured != EMPTY) {
+            removePiece(to);
+        }
+        int code = squares[from];
+        int side = (code & RED) != 0 ? 0 : 1;
+        int index = pieceIndex[from];
+        pieceList[side][index] = to;
+        pieceIndex[to] = (byte) index;
+        squares[to] = (byte) code;
+        squares[from] = EMPTY;
+        hash ^= ZOBRIST_PIECES[code][from] ^ ZOBRIST_PIECES[code][to];
+        midgameScore[side] += EvalParams.MIDGAME[code][to] - EvalParams.MIDGAME[code][from];
+        endgameScore[side] += EvalParams.ENDGAME[code][to] - EvalParams.ENDGAME[code][from];
+        if (typeOf(code) == KING) {
+            kingSquare[side] = to;
+        }
+        return captured;
+    }
+
+    /**
+     * 撤销 makeMove
+     */
+    private void unmakeMove(int from, int to, int captured) {
+        int code = squares[to];
+        int side = (code & RED) != 0 ? 0 : 1;
+        int index = pieceIndex[to];
+        pieceList[side][index] = from;
+        pieceIndex[from] = (byte) index;
+        squares[from] = (byte) code;
+        squares[to] = EMPTY;
+        hash ^= ZOBRIST_PIECES[code][from] ^ ZOBRIST_PIECES[code][to];
+        midgameScore[side] += EvalParams.MIDGAME[code][from] - EvalParams.MIDGAME[code][to];
+        endgameScore[side] += EvalParams.ENDGAME[code][from] - EvalParams.ENDGAME[code][to];
+        if (typeOf(code) == KING) {
+            kingSquare[side] = from;
+        }
+        if (captured != EMPTY) {
+            addPiece(to, captured);
+        }
+    }
+
+    // ==================== 对外接口 ====================
+
     /**
      * 获取指定位置的棋子
      */
     public ChessPiece getPiece(int x, int y) {
         if (isValidPosition(x, y)) {
-            return board[y][x];
+            return PIECE_OF_CODE[squares[square(x, y)]];
         }
         return ChessPiece.EMPTY;
     }
-    
+
     /**
      * 设置指定位置的棋子
      */
     public void setPiece(int x, int y, ChessPiece piece) {
-        if (isValidPosition(x, y)) {
-            board[y][x] = piece;
+        if (!isValidPosition(x, y)) {
+            return;
+        }
+        int sq = square(x, y);
+        if (squares[sq] != EMPTY) {
+            removePiece(sq);
+        }
+        int code = toCode(piece);
+        if (code != EMPTY) {
+            addPiece(sq, code);
         }
     }
-    
+
     /**
      * 移动棋子
      */
@@ -97,60 +431,83 @@ public class ChessBoard {
         if (!isValidMove(fromX, fromY, toX, toY)) {
             return false;
         }
-        
-        ChessPiece piece = getPiece(fromX, fromY);
-        setPiece(toX, toY, piece);
-        setPiece(fromX, fromY, ChessPiece.EMPTY);
-        
-        redTurn = !redTurn;
+
+        makeMove(square(fromX, fromY), square(toX, toY));
+        switchTurn();
         return true;
     }
-    
+
+    /**
+     * 执行走法（不做合法性检查，用于已生成或已校验的走法），与 undoMove(int) 配对使用
+     */
+    public void doMove(int move) {
+        makeMove(Move.from(move), Move.to(move));
+        switchTurn();
+    }
+
+    /**
+     * 撤销 doMove，被吃的棋子从走法编码中恢复
+     */
+    public void undoMove(int move) {
+        unmakeMove(Move.from(move), Move.to(move), Move.captured(move));
+        switchTurn();
+    }
+
+    /**
+     * 空着：只交换行棋方（搜索中的空着裁剪使用），与 undoNullMove 配对使用
+     */
+    public void doNullMove() {
+        switchTurn();
+    }
+
+    public void undoNullMove() {
+        switchTurn();
+    }
+
     /**
      * 撤销移动（用于悔棋功能）
      */
     public void undoMove(int fromX, int fromY, int toX, int toY, ChessPiece capturedPiece) {
-        // 将棋子移回原位置
-        ChessPiece piece = getPiece(toX, toY);
-        setPiece(fromX, fromY, piece);
-        
-        // 恢复被吃掉的棋子（如果有的话）
-        if (capturedPiece != null && !capturedPiece.isEmpty()) {
-            setPiece(toX, toY, capturedPiece);
-        } else {
-            setPiece(toX, toY, ChessPiece.EMPTY);
-        }
-        
+        unmakeMove(square(fromX, fromY), square(toX, toY), toCode(capturedPiece));
+
         // 切换回合
+        switchTurn();
+    }
+
+    private void switchTurn() {
         redTurn = !redTurn;
+        hash ^= ZOBRIST_BLACK_TO_MOVE;
     }
-    
+
     /**
      * 获取棋盘的深拷贝（用于保存状态）
      */
     public ChessBoard copy() {
-        ChessBoard copy = new ChessBoard();
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            for (int j = 0; j < BOARD_WIDTH; j++) {
-                copy.board[i][j] = this.board[i][j];
-            }
-        }
-        copy.redTurn = this.redTurn;
+        ChessBoard copy = new ChessBoard(true);
+        copy.restoreFrom(this);
         return copy;
     }
-    
+
     /**
      * 从另一个棋盘状态恢复当前棋盘
      */
     public void restoreFrom(ChessBoard other) {
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            for (int j = 0; j < BOARD_WIDTH; j++) {
-                this.board[i][j] = other.board[i][j];
-            }
+        System.arraycopy(other.squares, 0, squares, 0, BOARD_SIZE);
+        System.arraycopy(other.pieceIndex, 0, pieceIndex, 0, BOARD_SIZE);
+        for (int side = 0; side < 2; side++) {
+            pieceCount[side] = other.pieceCount[side];
+            System.arraycopy(other.pieceList[side], 0, pieceList[side], 0, pieceCount[side]);
+            System.arraycopy(other.typeCount[side], 0, typeCount[side], 0, typeCount[side].length);
+            kingSquare[side] = other.kingSquare[side];
+            material[side] = other.material[side];
+            midgameScore[side] = other.midgameScore[side];
+            endgameScore[side] = other.endgameScore[side];
         }
+        this.phase = other.phase;
         this.redTurn = other.redTurn;
+        this.hash = other.hash;
     }
-    
+
     /**
      * 检查移动是否合法
      */
@@ -158,327 +515,592 @@ public class ChessBoard {
         if (!isValidPosition(fromX, fromY) || !isValidPosition(toX, toY)) {
             return false;
         }
-        
-        ChessPiece piece = getPiece(fromX, fromY);
-        ChessPiece target = getPiece(toX, toY);
-        
-        // 不能移动空位
-        if (piece.isEmpty()) {
-            return false;
+
+        return isLegalMove(square(fromX, fromY), square(toX, toY));
+    }
+
+    /**
+     * 补全走法中的棋子信息：from -> to 对当前行棋方合法时返回完整的 Move 编码，否则返回 Move.NONE
+     */
+    public int findLegalMove(int from, int to) {
+        if (!inBoard(from) || !inBoard(to) || !isLegalMove(from, to)) {
+            return Move.NONE;
         }
-        
-        // 不能移动对方棋子
-        if (piece.isRed() != redTurn) {
+        return Move.of(from, to, squares[from], squares[to]);
+    }
+
+    private boolean isLegalMove(int from, int to) {
+        int piece = squares[from];
+        int target = squares[to];
+        int self = sideTag(redTurn);
+
+        // 不能移动空位或对方棋子
+        if ((piece & self) == 0) {
             return false;
         }
-        
+
         // 不能吃自己的棋子
-        if (!target.isEmpty() && target.isRed() == piece.isRed()) {
+        if ((target & self) != 0) {
             return false;
         }
-        
-        // 检查具体棋子的移动规则
-        return isValidPieceMove(piece, fromX, fromY, toX, toY);
-    }
-    
-    /**
-     * 检查具体棋子的移动规则
-     */
-    private boolean isValidPieceMove(ChessPiece piece, int fromX, int fromY, int toX, int toY) {
-        int dx = Math.abs(toX - fromX);
-        int dy = Math.abs(toY - fromY);
-        
-        switch (piece) {
-            case RED_KING:
-            case BLACK_KING:
-                return isValidKingMove(fromX, fromY, toX, toY, piece.isRed());
-                
-            case RED_ADVISOR:
-            case BLACK_ADVISOR:
-                return isValidAdvisorMove(fromX, fromY, toX, toY, piece.isRed());
-                
-            case RED_ELEPHANT:
-            case BLACK_ELEPHANT:
-                return isValidElephantMove(fromX, fromY, toX, toY, piece.isRed());
-                
-            case RED_HORSE:
-            case BLACK_HORSE:
-                return isValidHorseMove(fromX, fromY, toX, toY);
-                
-            case RED_CHARIOT:
-            case BLACK_CHARIOT:
-                return isValidChariotMove(fromX, fromY, toX, toY);
-                
-            case RED_CANNON:
-            case BLACK_CANNON:
-                return isValidCannonMove(fromX, fromY, toX, toY);
-                
-            case RED_SOLDIER:
-            case BLACK_SOLDIER:
-                return isValidSoldierMove(fromX, fromY, toX, toY, piece.isRed());
-                
+
+        // 检查具体棋子的移动规则，走完后己方不能被将军（包括将帅照面）
+        return isValidPieceMove(typeOf(piece), from, to) && !leavesKingInCheck(from, to);
+    }
+
+    /**
+     * 检查具体棋子的移动规则（from 上是当前行棋方的棋子，to 不是己方棋子）
+     */
+    private boolean isValidPieceMove(int type, int from, int to) {
+        int index;
+        switch (type) {
+            case KING:
+                // 帅/将只能在九宫格内移动，每次只能移动一格
+                return MoveTables.indexOf(MoveTables.KING_MOVES[from], to) >= 0;
+
+            case ADVISOR:
+                // 仕/士只能在九宫格内斜着移动
+                return MoveTables.indexOf(MoveTables.ADVISOR_MOVES[from], to) >= 0;
+
+            case ELEPHANT:
+                // 相/象不能过河，斜着走两格，不能被塞象眼
+                index = MoveTables.indexOf(MoveTables.ELEPHANT_MOVES[from], to);
+                return index >= 0 && squares[MoveTables.ELEPHANT_EYES[from][index]] == EMPTY;
+
+            case HORSE:
+                // 马走日字，不能被蹩马腿
+                index = MoveTables.indexOf(MoveTables.HORSE_MOVES[from], to);
+                return index >= 0 && squares[MoveTables.HORSE_LEGS[from][index]] == EMPTY;
+
+            case CHARIOT:
+                // 车走直线，路径上不能有棋子
+                return isSameLine(from, to) && countPiecesBetween(from, to) == 0;
+
+            case CANNON:
+                // 炮走直线，吃子时中间必须有且仅有一个棋子（炮架）
+                if (!isSameLine(from, to)) {
+                    return false;
+                }
+                return countPiecesBetween(from, to) == (squares[to] == EMPTY ? 0 : 1);
+
+            case SOLDIER:
+                // 兵/卒每次一格，未过河只能向前，过河后可以左右，不能后退
+                return MoveTables.indexOf(MoveTables.SOLDIER_MOVES[redTurn ? 0 : 1][from], to) >= 0;
+
             default:
                 return false;
         }
     }
-    
-    // 各种棋子的移动规则检查方法
-    private boolean isValidKingMove(int fromX, int fromY, int toX, int toY, boolean isRed) {
-        // 帅/将只能在九宫格内移动，每次只能移动一格
-        int palaceMinX = 3, palaceMaxX = 5;
-        int palaceMinY, palaceMaxY;
-        
-        if (isRed) {
-            // 红方帅在第7-9行
-            palaceMinY = 7;
-            palaceMaxY = 9;
+
+    private static boolean isSameLine(int from, int to) {
+        return from != to && ((from & 15) == (to & 15) || (from >> 4) == (to >> 4));
+    }
+
+    /**
+     * 计算同一直线上两个格子之间的棋子数量
+     */
+    private int countPiecesBetween(int from, int to) {
+        int step;
+        if ((from >> 4) == (to >> 4)) {
+            step = to > from ? 1 : -1;
         } else {
-            // 黑方将在第0-2行
-            palaceMinY = 0;
-            palaceMaxY = 2;
+            step = to > from ? 16 : -16;
         }
-        
-        if (toX < palaceMinX || toX > palaceMaxX || toY < palaceMinY || toY > palaceMaxY) {
-            return false;
+        int count = 0;
+        for (int sq = from + step; sq != to; sq += step) {
+            if (squares[sq] != EMPTY) {
+                count++;
+            }
         }
-        
-        int dx = Math.abs(toX - fromX);
-        int dy = Math.abs(toY - fromY);
-        return (dx == 1 && dy == 0) || (dx == 0 && dy == 1);
-    }
-    
-    private boolean isValidAdvisorMove(int fromX, int fromY, int toX, int toY, boolean isRed) {
-        // 仕/士只能在九宫格内斜着移动
-        int palaceMinX = 3, palaceMaxX = 5;
-        int palaceMinY, palaceMaxY;
-        
-        if (isRed) {
-            // 红方仕在第7-9行
-            palaceMinY = 7;
-            palaceMaxY = 9;
-        } else {
-            // 黑方士在第0-2行
-            palaceMinY = 0;
-            palaceMaxY = 2;
+        return count;
+    }
+
+    // ==================== 走法生成与将军检测 ====================
+
+    /**
+     * 生成当前行棋方的全部合法走法（Move 编码，含移动和被吃的棋子），
+     * 写入 moves（长度至少 MAX_MOVES），返回走法数量。调用方复用同一个缓冲区，生成过程不分配对象。
+     */
+    public int generateLegalMoves(int[] moves) {
+        int count = generatePseudoMoves(moves);
+        int side = redTurn ? 0 : 1;
+        int king = kingSquare[side];
+        if (king < 0) {
+            return 0;
         }
-        
-        if (toX < palaceMinX || toX > palaceMaxX || toY < palaceMinY || toY > palaceMaxY) {
-            return false;
+        boolean inCheck = isAttacked(king, side);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int m = moves[i];
+            if (!needsCheckTest(m, king, inCheck) || !leavesKingInCheck(Move.from(m), Move.to(m))) {
+                moves[legal++] = m;
+            }
         }
-        
-        return Math.abs(toX - fromX) == 1 && Math.abs(toY - fromY) == 1;
+        return legal;
     }
-    
-    private boolean isValidElephantMove(int fromX, int fromY, int toX, int toY, boolean isRed) {
-        // 相/象不能过河，斜着走两格，不能被蹩脚
-        // 红方相不能越过第4行（楚河汉界），黑方象不能越过第5行
-        if (isRed) {
-            // 红方相只能在第5-9行活动
-            if (toY < 5) {
-                return false;
-            }
-        } else {
-            // 黑方象只能在第0-4行活动
-            if (toY > 4) {
-                return false;
+
+    /**
+     * 只生成当前行棋方的合法吃子走法（静态搜索使用），先按是否吃子过滤，再做将军检测
+     */
+    public int generateLegalCaptures(int[] moves) {
+        int count = generatePseudoMoves(moves);
+        int side = redTurn ? 0 : 1;
+        int king = kingSquare[side];
+        if (king < 0) {
+            return 0;
+        }
+        boolean inCheck = isAttacked(king, side);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int m = moves[i];
+            if (Move.isCapture(m)
+                    && (!needsCheckTest(m, king, inCheck) || !leavesKingInCheck(Move.from(m), Move.to(m)))) {
+                moves[legal++] = m;
             }
         }
-        
-        if (Math.abs(toX - fromX) != 2 || Math.abs(toY - fromY) != 2) {
+        return legal;
+    }
+
+    /**
+     * 生成当前行棋方的全部合法走法，替换 list 中原有的内容
+     */
+    public void generateLegalMoves(MoveList list) {
+        list.clear();
+        list.setSize(generateLegalMoves(list.reserve(MAX_MOVES)));
+    }
+
+    /**
+     * 当前行棋方是否还有合法走法。
+     * 逐个棋子生成走法，找到第一个合法走法即返回，不会先生成全部伪合法走法
+     */
+    public boolean hasLegalMove() {
+        int side = redTurn ? 0 : 1;
+        int king = kingSquare[side];
+        if (king < 0) {
             return false;
         }
-        
-        // 检查蹩脚点
-        int midX = (fromX + toX) / 2;
-        int midY = (fromY + toY) / 2;
-        return getPiece(midX, midY).isEmpty();
-    }
-    
-    private boolean isValidHorseMove(int fromX, int fromY, int toX, int toY) {
-        // 马走日字，不能被蹩脚
-        int dx = Math.abs(toX - fromX);
-        int dy = Math.abs(toY - fromY);
-        
-        if (!((dx == 2 && dy == 1) || (dx == 1 && dy == 2))) {
-            return false;
+        boolean inCheck = isAttacked(king, side);
+        int[] moves = scratchMoves;
+        // 试走只会改变对方的棋子列表，本方列表的顺序在循环中保持不变
+        for (int p = 0; p < pieceCount[side]; p++) {
+            int count = generatePieceMoves(pieceList[side][p], side, moves, 0);
+            for (int i = 0; i < count; i++) {
+                int m = moves[i];
+                if (!needsCheckTest(m, king, inCheck) || !leavesKingInCheck(Move.from(m), Move.to(m))) {
+                    return true;
+                }
+            }
         }
-        
-        // 检查蹩脚点
-        int blockX = fromX, blockY = fromY;
-        if (dx == 2) {
-            blockX += (toX > fromX) ? 1 : -1;
-        } else {
-            blockY += (toY > fromY) ? 1 : -1;
+        return false;
+    }
+
+    /**
+     * 当前行棋方是否被将军
+     */
+    public boolean isInCheck() {
+        return isInCheck(redTurn);
+    }
+
+    /**
+     * 指定一方是否被将军（包括将帅照面）
+     */
+    public boolean isInCheck(boolean red) {
+        int side = red ? 0 : 1;
+        int king = kingSquare[side];
+        return king >= 0 && isAttacked(king, side);
+    }
+
+    /**
+     * 是否被将死：被将军且无合法走法
+     */
+    public boolean isCheckmate() {
+        return isInCheck() && !hasLegalMove();
+    }
+
+    /**
+     * 是否困毙：未被将军但无合法走法（中国象棋中困毙同样判负）
+     */
+    public boolean isStalemate() {
+        return !isInCheck() && !hasLegalMove();
+    }
+
+    /**
+     * 生成当前行棋方的伪合法走法（符合棋子走法，未检查走后是否被将军）
+     */
+    private int generatePseudoMoves(int[] moves) {
+        int side = redTurn ? 0 : 1;
+        int count = 0;
+        for (int i = 0; i < pieceCount[side]; i++) {
+            count = generatePieceMoves(pieceList[side][i], side, moves, count);
         }
-        
-        return getPiece(blockX, blockY).isEmpty();
+        return count;
     }
-    
-    private boolean isValidChariotMove(int fromX, int fromY, int toX, int toY) {
-        // 车走直线，路径上不能有棋子
-        if (fromX != toX && fromY != toY) {
-            return false;
+
+    /**
+     * 生成 from 上棋子（属于 side 一方）的伪合法走法，从 moves[count] 开始写入，返回新的走法数量
+     */
+    private int generatePieceMoves(int from, int side, int[] moves, int count) {
+        int self = side == 0 ? RED : BLACK;
+        int opponent = side == 0 ? BLACK : RED;
+        int piece = squares[from];
+        int[] targets;
+        switch (typeOf(piece)) {
+            case KING:
+                targets = MoveTables.KING_MOVES[from];
+                for (int to : targets) {
+                    if ((squares[to] & self) == 0) {
+                        moves[count++] = Move.of(from, to, piece, squares[to]);
+                    }
+                }
+                break;
+
+            case ADVISOR:
+                targets = MoveTables.ADVISOR_MOVES[from];
+                for (int to : targets) {
+                    if ((squares[to] & self) == 0) {
+                        moves[count++] = Move.of(from, to, piece, squares[to]);
+                    }
+                }
+                break;
+
+            case ELEPHANT:
+                targets = MoveTables.ELEPHANT_MOVES[from];
+                for (int j = 0; j < targets.length; j++) {
+                    int to = targets[j];
+                    if ((squares[to] & self) == 0 && squares[MoveTables.ELEPHANT_EYES[from][j]] == EMPTY) {
+                        moves[count++] = Move.of(from, to, piece, squares[to]);
+                    }
+                }
+                break;
+
+            case HORSE:
+                targets = MoveTables.HORSE_MOVES[from];
+                for (int j = 0; j < targets.length; j++) {
+                    int to = targets[j];
+                    if ((squares[to] & self) == 0 && squares[MoveTables.HORSE_LEGS[from][j]] == EMPTY) {
+                        moves[count++] = Move.of(from, to, piece, squares[to]);
+                    }
+                }
+                break;
+
+            case CHARIOT:
+                for (int delta : LINE_DELTAS) {
+                    int to = from + delta;
+                    while (squares[to] == EMPTY) {
+                        moves[count++] = Move.of(from, to, piece, squares[to]);
+                        to += delta;
+                    }
+                    if ((squares[to] & opponent) != 0) {
+                        moves[count++] = Move.of(from, to, piece, squares[to]);
+                    }
+                }
+                break;
+
+            case CANNON:
+                for (int delta : LINE_DELTAS) {
+                    int to = from + delta;
+                    while (squares[to] == EMPTY) {
+                        moves[count++] = Move.of(from, to, piece, squares[to]);
+                        to += delta;
+                    }
+                    if (squares[to] == OFF_BOARD) {
+                        continue;
+                    }
+                    // 越过炮架找第一个棋子
+                    to += delta;
+                    while (squares[to] == EMPTY) {
+                        to += delta;
+                    }
+                    if ((squares[to] & opponent) != 0) {
+                        moves[count++] = Move.of(from, to, piece, squares[to]);
+                    }
+                }
+                break;
+
+            case SOLDIER:
+                targets = MoveTables.SOLDIER_MOVES[side][from];
+                for (int to : targets) {
+                    if ((squares[to] & self) == 0) {
+                        moves[count++] = Move.of(from, to, piece, squares[to]);
+                    }
+                }
+                break;
+
+            default:
+                break;
         }
-        
-        return isPathClear(fromX, fromY, toX, toY);
+        return count;
     }
-    
-    private boolean isValidCannonMove(int fromX, int fromY, int toX, int toY) {
-        // 炮走直线，吃子时中间必须有一个棋子
-        if (fromX != toX && fromY != toY) {
-            return false;
+
+    /**
+     * 伪合法走法是否需要试走检测将军。
+     * 未被将军时，只有移动将帅、起点或终点与己方将帅同行同列（车炮照面、炮架变化），
+     * 或起点是将帅斜邻格（马腿）的走法才可能让己方被将军，其余走法必然合法。
+     */
+    private static boolean needsCheckTest(int m, int king, boolean inCheck) {
+        if (inCheck) {
+            return true;
         }
-        
-        ChessPiece target = getPiece(toX, toY);
-        if (target.isEmpty()) {
-            // 不吃子时路径必须清空
-            return isPathClear(fromX, fromY, toX, toY);
-        } else {
-            // 吃子时中间必须有且仅有一个棋子
-            return countPiecesInPath(fromX, fromY, toX, toY) == 1;
+        int from = Move.from(m);
+        int to = Move.to(m);
+        if (from == king) {
+            return true;
         }
-    }
-    
-    private boolean isValidSoldierMove(int fromX, int fromY, int toX, int toY, boolean isRed) {
-        int dx = toX - fromX;
-        int dy = toY - fromY;
-        
-        // 兵/卒每次只能移动一格
-        if (Math.abs(dx) + Math.abs(dy) != 1) {
-            return false;
+        if ((from & 15) == (king & 15) || (from >> 4) == (king >> 4)
+                || (to & 15) == (king & 15) || (to >> 4) == (king >> 4)) {
+            return true;
         }
-        
-        // 兵/卒移动规则
-        if (isRed) {
-            // 红方兵：初始在第6行
-            // 楚河汉界：第4-5行
-            if (fromY >= 5) {
-                // 在红方区域或楚河汉界（第5-9行），只能向前（y减小）
-                return dx == 0 && dy == -1;
-            } else {
-                // 已过河到黑方区域（第0-4行），可以向前或左右，但不能后退
-                return (dx == 0 && dy == -1) || (Math.abs(dx) == 1 && dy == 0);
+        int diff = from - king;
+        return diff == -17 || diff == -15 || diff == 15 || diff == 17;
+    }
+
+    /**
+     * 试走一步，检查走后己方将帅是否被攻击
+     */
+    private boolean leavesKingInCheck(int from, int to) {
+        int side = (squares[from] & RED) != 0 ? 0 : 1;
+        int captured = makeMove(from, to);
+        int king = kingSquare[side];
+        boolean attacked = king >= 0 && isAttacked(king, side);
+        unmakeMove(from, to, captured);
+        return attacked;
+    }
+
+
+    /**
+     * 格子 target 上 side 一方的棋子是否受到对方车、马、炮、兵的攻击（以及将帅照面）。
+     * 对方的仕、相、将帅不可能走到本方将帅所在格子，判断将军时不需要考虑
+     */
+    private boolean isAttacked(int target, int side) {
+        int opponent = side == 0 ? BLACK : RED;
+        boolean targetIsKing = typeOf(squares[target]) == KING;
+
+        // 车、炮、将帅照面：沿四个方向找第一个和第二个棋子
+        for (int delta : LINE_DELTAS) {
+            int sq = target + delta;
+            while (squares[sq] == EMPTY) {
+                sq += delta;
             }
-        } else {
-            // 黑方卒：初始在第3行
-            // 楚河汉界：第4-5行
-            if (fromY <= 4) {
-                // 在黑方区域或楚河汉界（第0-4行），只能向前（y增大）
-                return dx == 0 && dy == 1;
-            } else {
-                // 已过河到红方区域（第5-9行），可以向前或左右，但不能后退
-                return (dx == 0 && dy == 1) || (Math.abs(dx) == 1 && dy == 0);
+            int piece = squares[sq];
+            if (piece == OFF_BOARD) {
+                continue;
+            }
+            if ((piece & opponent) != 0 && (typeOf(piece) == CHARIOT || (typeOf(piece) == KING && targetIsKing))) {
+                return true;
+            }
+            sq += delta;
+            while (squares[sq] == EMPTY) {
+                sq += delta;
+            }
+            if (squares[sq] == opponent + CANNON) {
+                return true;
             }
         }
+
+        // 马：反向马表，马腿在马的一侧
+        int[] attackers = MoveTables.HORSE_ATTACKERS[target];
+        for (int i = 0; i < attackers.length; i++) {
+            if (squares[attackers[i]] == opponent + HORSE
+                    && squares[MoveTables.HORSE_ATTACK_LEGS[target][i]] == EMPTY) {
+                return true;
+            }
+        }
+
+        // 兵/卒：从前方攻击；目标在 side 一方半场时，对方兵卒已过河，也可以从左右攻击
+        int pawn = opponent + SOLDIER;
+        int front = side == 0 ? target - 16 : target + 16;
+        if (squares[front] == pawn) {
+            return true;
+        }
+        return (side == 0) == isRedSide(target) && (squares[target - 1] == pawn || squares[target + 1] == pawn);
     }
-    
+
     /**
-     * 检查路径是否清空
+     * 格子 target 是否被 side 一方的棋子保护（对方在此吃子后 side 可以吃回）
      */
-    private boolean isPathClear(int fromX, int fromY, int toX, int toY) {
-        return countPiecesInPath(fromX, fromY, toX, toY) == 0;
+    private boolean isDefended(int target, int side) {
+        if (isAttacked(target, 1 - side)) {
+            return true;
+        }
+        int own = side == 0 ? RED : BLACK;
+        for (int sq : MoveTables.KING_MOVES[target]) {
+            if (squares[sq] == own + KING) {
+                return true;
+            }
+        }
+        for (int sq : MoveTables.ADVISOR_MOVES[target]) {
+            if (squares[sq] == own + ADVISOR) {
+                return true;
+            }
+        }
+        int[] elephants = MoveTables.ELEPHANT_MOVES[target];
+        for (int i = 0; i < elephants.length; i++) {
+            if (squares[elephants[i]] == own + ELEPHANT && squares[MoveTables.ELEPHANT_EYES[target][i]] == EMPTY) {
+                return true;
+            }
+        }
+        return false;
     }
-    
+
     /**
-     * 计算路径上的棋子数量
+     * (x, y) 上的棋子是否在"捉"对方的子：能吃到对方无根的车马炮仕相，
+     * 或者以马、炮捉车（车比马炮价值高，有根也算捉）。将帅和兵卒捉子不算，被捉的将帅（将军）和兵卒也不算。
+     * 用于判断长捉，只看刚走的这个子，不考虑闪击产生的捉子。
      */
-    private int countPiecesInPath(int fromX, int fromY, int toX, int toY) {
-        int count = 0;
-        int stepX = Integer.compare(toX, fromX);
-        int stepY = Integer.compare(toY, fromY);
-        
-        int x = fromX + stepX;
-        int y = fromY + stepY;
-        
-        while (x != toX || y != toY) {
-            if (!getPiece(x, y).isEmpty()) {
-                count++;
+    public boolean isChasing(int x, int y) {
+        if (!isValidPosition(x, y)) {
+            return false;
+        }
+        int from = square(x, y);
+        int piece = squares[from];
+        int type = typeOf(piece);
+        if (piece == EMPTY || type == KING || type == SOLDIER) {
+            return false;
+        }
+        int side = (piece & RED) != 0 ? 0 : 1;
+        int[] moves = scratchMoves;
+        int count = generatePieceMoves(from, side, moves, 0);
+        for (int i = 0; i < count; i++) {
+            int to = Move.to(moves[i]);
+            int target = squares[to];
+            if (target == EMPTY || typeOf(target) == KING || typeOf(target) == SOLDIER) {
+                continue;
+            }
+            if (typeOf(target) == CHARIOT && (type == HORSE || type == CANNON)) {
+                return true;
+            }
+            if (!isDefended(to, 1 - side)) {
+                return true;
             }
-            x += stepX;
-            y += stepY;
         }
-        
-        return count;
+        return false;
     }
-    
+
     /**
      * 检查位置是否有效
      */
     private boolean isValidPosition(int x, int y) {
         return x >= 0 && x < BOARD_WIDTH && y >= 0 && y < BOARD_HEIGHT;
     }
-    
+
     /**
-     * 检查游戏是否结束
+     * 检查游戏是否结束：有一方的将/帅已被吃掉，或者当前行棋方无棋可走（被将死或困毙）。
+     * 将帅位置直接读取；是否有棋可走由 hasLegalMove 逐个棋子判断，找到第一个合法走法即返回
      */
     public boolean isGameOver() {
-        boolean redKingExists = false;
-        boolean blackKingExists = false;
-        
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            for (int j = 0; j < BOARD_WIDTH; j++) {
-                ChessPiece piece = board[i][j];
-                if (piece == ChessPiece.RED_KING) {
-                    redKingExists = true;
-                } else if (piece == ChessPiece.BLACK_KING) {
-                    blackKingExists = true;
-                }
-            }
-        }
-        
-        return !redKingExists || !blackKingExists;
+        return kingSquare[0] < 0 || kingSquare[1] < 0 || !hasLegalMove();
     }
-    
+
     public boolean isRedTurn() {
         return redTurn;
     }
-    
+
     public void setRedTurn(boolean redTurn) {
-        this.redTurn = redTurn;
+        if (this.redTurn != redTurn) {
+            switchTurn();
+        }
+    }
+
+    /**
+     * 当前局面（棋子位置和行棋方）的 Zobrist 哈希，随走子增量更新
+     */
+    public long hash() {
+        return hash;
     }
-    
+
     /**
-     * 将棋盘状态序列化为字符串
+     * 输出 FEN 局面：棋盘部分从黑方底线（第0行）开始逐行写出，行间以 / 分隔，连续空格写成数字，
+     * 大写为红方、小写为黑方（K/A/B/N/R/C/P 依次为将、士、象、马、车、炮、兵），最后是行棋方 w / b。
+     * 省略标准 FEN 末尾的 "- - 0 1"，初始局面只有 61 个字符
      */
-    public String serialize() {
-        StringBuilder sb = new StringBuilder();
-        // 添加回合信息
-        sb.append(redTurn ? "R" : "B").append("|");
-        
-        // 添加棋盘状态
+    public String toFen() {
+        char[] buf = new char[BOARD_HEIGHT * (BOARD_WIDTH + 1) + 2];
+        int pos = 0;
         for (int y = 0; y < BOARD_HEIGHT; y++) {
-            for (int x = 0; x < BOARD_WIDTH; x++) {
-                ChessPiece piece = board[y][x];
-                sb.append(piece.getId()).append(",");
+            if (y > 0) {
+                buf[pos++] = '/';
+            }
+            int empty = 0;
+            for (int sq = square(0, y), end = sq + BOARD_WIDTH; sq < end; sq++) {
+                int code = squares[sq];
+                if (code == EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    buf[pos++] = (char) ('0' + empty);
+                    empty = 0;
+                }
+                buf[pos++] = FEN_CHAR_OF_CODE[code];
+            }
+            if (empty > 0) {
+                buf[pos++] = (char) ('0' + empty);
             }
         }
-        return sb.toString();
+        buf[pos++] = ' ';
+        buf[pos++] = redTurn ? 'w' : 'b';
+        return new String(buf, 0, pos);
     }
-    
+
     /**
-     * 从字符串反序列化棋盘状态
+     * 解析 FEN 局面，单次扫描、查表取棋子。行棋方接受 w / r（红）和 b（黑），缺省为红方；
+     * 之后的字段（回合数等）忽略。也接受 E/H 表示象/马。格式错误、某类棋子多于开局数量或缺少将帅时
+     * 抛出 IllegalArgumentException
      */
-    public static ChessBoard deserialize(String data) {
-        ChessBoard chessBoard = new ChessBoard();
-        String[] parts = data.split("\\|");
-        
-        // 解析回合信息
-        chessBoard.redTurn = "R".equals(parts[0]);
-        
-        // 解析棋盘状态
-        String[] pieceIds = parts[1].split(",");
-        int index = 0;
-        
-        for (int y = 0; y < BOARD_HEIGHT; y++) {
-            for (int x = 0; x < BOARD_WIDTH; x++) {
-                if (index < pieceIds.length && !pieceIds[index].isEmpty()) {
-                    int pieceId = Integer.parseInt(pieceIds[index]);
-                    chessBoard.board[y][x] = ChessPiece.fromId(pieceId);
+    public static ChessBoard fromFen(String fen) {
+        ChessBoard board = new ChessBoard(true);
+        int length = fen.length();
+        int pos = 0;
+        while (pos < length && fen.charAt(pos) == ' ') {
+            pos++;
+        }
+        int x = 0;
+        int y = 0;
+        for (; pos < length; pos++) {
+            char c = fen.charAt(pos);
+            if (c == ' ') {
+                break;
+            }
+            if (c == '/') {
+                if (x != BOARD_WIDTH) {
+                    throw new IllegalArgumentException("FEN 第 " + y + " 行不是 9 列: " + fen);
                 }
-                index++;
+                x = 0;
+                if (++y >= BOARD_HEIGHT) {
+                    throw new IllegalArgumentException("FEN 行数超过 10 行: " + fen);
+                }
+            } else if (c >= '1' && c <= '9') {
+                x += c - '0';
+                if (x > BOARD_WIDTH) {
+                    throw new IllegalArgumentException("FEN 第 " + y + " 行超过 9 列: " + fen);
+                }
+            } else {
+                int code = c < 128 ? CODE_OF_FEN_CHAR[c] : EMPTY;
+                if (code == EMPTY) {
+                    throw new IllegalArgumentException("FEN 中无法识别的字符 '" + c + "': " + fen);
+                }
+                int side = (code & RED) != 0 ? 0 : 1;
+                if (x >= BOARD_WIDTH) {
+                    throw new IllegalArgumentException("FEN 第 " + y + " 行超过 9 列: " + fen);
+                }
+                if (board.typeCount[side][typeOf(code)] == MAX_TYPE_COUNTS[typeOf(code)]) {
+                    throw new IllegalArgumentException("FEN 中 '" + c + "' 的数量超过开局数量: " + fen);
+                }
+                board.addPiece(square(x++, y), code);
             }
         }
-        
-        return chessBoard;
+        if (y != BOARD_HEIGHT - 1 || x != BOARD_WIDTH) {
+            throw new IllegalArgumentException("FEN 棋盘不完整: " + fen);
+        }
+        if (board.kingSquare[0] < 0 || board.kingSquare[1] < 0) {
+            throw new IllegalArgumentException("FEN 双方必须各有一个将帅: " + fen);
+        }
+        while (pos < length && fen.charAt(pos) == ' ') {
+            pos++;
+        }
+        if (pos < length && fen.charAt(pos) == 'b') {
+            board.switchTurn();
+        }
+        return board;
     }
-}
\ No newline at end of file
+}
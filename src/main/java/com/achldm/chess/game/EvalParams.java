@@ -0,0 +1,161 @@
+package com.achldm.chess.game;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * 评估参数：子力分值、子力位置分（中局、残局各一套）、局面阶段权重以及其他评估项的权重
+ *
+ * 默认读取类路径上的 /eval/eval.properties；启动时加 -Dchess.eval.params=文件路径 可以换用外部文件，
+ * 调参不需要重新编译。格式错误的项只打印警告并使用默认值，调参后可用 validate() 或本类的 main 做严格检查。
+ * 位置分按红方视角书写，第一行为黑方底线，黑方棋子旋转 180 度使用同一张表。
+ * 分值以兵 = 100 为单位。ChessBoard 在增删、移动棋子时用 MIDGAME / ENDGAME 增量维护双方分值。
+ */
+public final class EvalParams {
+    public static final String PROPERTY = "chess.eval.params";
+    private static final String RESOURCE = "/eval/eval.properties";
+    private static final String[] TYPE_NAMES = {"king", "advisor", "elephant", "horse", "chariot", "cannon", "soldier"};
+    // 参数文件缺失时使用的子力分值
+    private static final int[] DEFAULT_MIDGAME_MATERIAL = {0, 200, 200, 400, 900, 450, 100};
+    private static final int[] DEFAULT_ENDGAME_MATERIAL = {0, 200, 200, 450, 950, 400, 150};
+    private static final int[] DEFAULT_PHASE_WEIGHTS = {0, 0, 0, 2, 4, 2, 0};
+    // 开局时各类棋子的数量
+    private static final int[] INITIAL_COUNTS = {1, 2, 2, 2, 2, 2, 5};
+
+    private static final Properties PROPS = load();
+
+    /** [棋子编码][格子] -> 子力分值 + 位置分 */
+    static final int[][] MIDGAME = new int[ChessBoard.OFF_BOARD][ChessBoard.BOARD_SIZE];
+    static final int[][] ENDGAME = new int[ChessBoard.OFF_BOARD][ChessBoard.BOARD_SIZE];
+    /** 各类棋子的阶段权重：场上全部棋子权重之和为 MAX_PHASE 时按中局计分，为 0 时按残局计分 */
+    static final int[] PHASE_WEIGHTS = new int[7];
+    public static final int MAX_PHASE;
+
+    static {
+        int maxPhase = 0;
+        for (int type = ChessBoard.KING; type <= ChessBoard.SOLDIER; type++) {
+            String name = TYPE_NAMES[type];
+            int midMaterial = getInt("material.mg." + name, DEFAULT_MIDGAME_MATERIAL[type]);
+            int endMaterial = getInt("material.eg." + name, DEFAULT_ENDGAME_MATERIAL[type]);
+            int[] midTable = table("pst.mg." + name);
+            int[] endTable = table("pst.eg." + name);
+            for (int y = 0; y < ChessBoard.BOARD_HEIGHT; y++) {
+                for (int x = 0; x < ChessBoard.BOARD_WIDTH; x++) {
+                    int index = y * ChessBoard.BOARD_WIDTH + x;
+                    int red = ChessBoard.square(x, y);
+                    int black = ChessBoard.square(ChessBoard.BOARD_WIDTH - 1 - x, ChessBoard.BOARD_HEIGHT - 1 - y);
+                    MIDGAME[ChessBoard.RED + type][red] = midMaterial + midTable[index];
+                    ENDGAME[ChessBoard.RED + type][red] = endMaterial + endTable[index];
+                    MIDGAME[ChessBoard.BLACK + type][black] = midMaterial + midTable[index];
+                    ENDGAME[ChessBoard.BLACK + type][black] = endMaterial + endTable[index];
+                }
+            }
+            PHASE_WEIGHTS[type] = getInt("phase." + name, DEFAULT_PHASE_WEIGHTS[type]);
+            maxPhase += 2 * INITIAL_COUNTS[type] * PHASE_WEIGHTS[type];
+        }
+        MAX_PHASE = Math.max(1, maxPhase);
+    }
+
+    private EvalParams() {
+    }
+
+    /**
+     * 读取整数参数，未配置时返回默认值；格式错误时打印警告并使用默认值
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = PROPS.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("评估参数 " + key + " 格式错误: " + value.trim() + "，使用默认值 " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 读取 90 个数的位置分表，未配置时全部为 0；格式错误时打印警告并按未配置处理
+     */
+    private static int[] table(String key) {
+        try {
+            return parseTable(key);
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage() + "，该表按全 0 处理");
+            return new int[ChessBoard.BOARD_WIDTH * ChessBoard.BOARD_HEIGHT];
+        }
+    }
+
+    private static int[] parseTable(String key) {
+        int[] values = new int[ChessBoard.BOARD_WIDTH * ChessBoard.BOARD_HEIGHT];
+        String text = PROPS.getProperty(key);
+        if (text == null) {
+            return values;
+        }
+        int count = 0;
+        for (String token : text.trim().split("[,\\s]+")) {
+            if (count == values.length) {
+                count++;
+                break;
+            }
+            try {
+                values[count++] = Integer.parseInt(token);
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("评估参数 " + key + " 第 " + count + " 个数格式错误: " + token);
+            }
+        }
+        if (count != values.length) {
+            throw new IllegalStateException("评估参数 " + key + " 应为 90 个数");
+        }
+        return values;
+    }
+
+    /**
+     * 严格检查参数文件：任何一项格式错误都抛出 IllegalStateException
+     *
+     * 正常启动时格式错误只打印警告并回退到默认值，调参工具应在写出参数文件后调用这里，
+     * 避免错误的参数被悄悄忽略。
+     */
+    public static void validate() {
+        for (String key : PROPS.stringPropertyNames()) {
+            if (key.startsWith("pst.")) {
+                parseTable(key);
+            } else {
+                String value = PROPS.getProperty(key).trim();
+                try {
+                    Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalStateException("评估参数 " + key + " 格式错误: " + value);
+                }
+            }
+        }
+    }
+
+    /**
+     * 检查参数文件，用法：java -Dchess.eval.params=文件路径 com.achldm.chess.game.EvalParams
+     */
+    public static void main(String[] args) {
+        validate();
+        System.out.println("评估参数检查通过");
+    }
+
+    private static Properties load() {
+        Properties props = new Properties();
+        String path = System.getProperty(PROPERTY);
+        try (InputStream in = path != null ? new FileInputStream(path) : EvalParams.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                System.err.println("未找到评估参数文件 " + RESOURCE + "，使用默认子力分值");
+            } else {
+                props.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            System.err.println("读取评估参数失败: " + e.getMessage());
+        }
+        return props;
+    }
+}
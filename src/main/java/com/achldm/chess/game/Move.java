@@ -0,0 +1,73 @@
+package com.achldm.chess.game;
+
+/**
+ * 走法的 int 编码（静态工具方法，不创建对象）
+ *
+ * 位 0~7 起点格子，8~15 终点格子（ChessBoard 的 16x16 信箱坐标），
+ * 16~20 移动的棋子编码，21~25 被吃的棋子编码（0 表示未吃子），26 以上为标志位。
+ * 只有起点、终点两部分时就是网络协议中传输的走法；棋子编码由棋盘生成或校验走法时补全。
+ * 棋盘外的格子编号不会是 0，因此 NONE（0）不会与任何有效走法冲突。
+ */
+public final class Move {
+    public static final int NONE = 0;
+
+    /** 走后对方被将军 */
+    public static final int FLAG_CHECK = 1 << 26;
+
+    private static final int SQUARE_MASK = 0xFF;
+    private static final int CODE_MASK = 0x1F;
+    private static final int PIECE_SHIFT = 16;
+    private static final int CAPTURED_SHIFT = 21;
+
+    private Move() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << 8);
+    }
+
+    public static int of(int from, int to, int piece, int captured) {
+        return from | (to << 8) | (piece << PIECE_SHIFT) | (captured << CAPTURED_SHIFT);
+    }
+
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move) {
+        return (move >>> 8) & SQUARE_MASK;
+    }
+
+    /**
+     * 只保留起点和终点（比较两个走法是否相同、网络传输时使用）
+     */
+    public static int squares(int move) {
+        return move & 0xFFFF;
+    }
+
+    public static int piece(int move) {
+        return (move >>> PIECE_SHIFT) & CODE_MASK;
+    }
+
+    public static int captured(int move) {
+        return (move >>> CAPTURED_SHIFT) & CODE_MASK;
+    }
+
+    public static boolean isCapture(int move) {
+        return captured(move) != ChessBoard.EMPTY;
+    }
+
+    public static boolean hasFlag(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * 以棋盘坐标显示走法，例如 (7,7)->(4,7)
+     */
+    public static String toString(int move) {
+        int from = from(move);
+        int to = to(move);
+        return "(" + ChessBoard.fileOf(from) + "," + ChessBoard.rankOf(from) + ")->("
+                + ChessBoard.fileOf(to) + "," + ChessBoard.rankOf(to) + ")";
+    }
+}
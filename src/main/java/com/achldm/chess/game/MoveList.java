@@ -0,0 +1,90 @@
+package com.achldm.chess.game;
+
+import java.util.Arrays;
+
+/**
+ * 由 int[] 实现的可增长走法列表（元素为 Move 编码）
+ *
+ * 添加、读取都不装箱、不分配对象，容量不足时才扩容。可以 clear 后反复使用，
+ * 适合作为走法生成缓冲区和对局历史。非线程安全。
+ */
+public final class MoveList {
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(ChessBoard.MAX_MOVES);
+    }
+
+    public MoveList(int capacity) {
+        this.moves = new int[Math.max(1, capacity)];
+    }
+
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public void swap(int i, int j) {
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+    }
+
+    public int last() {
+        return moves[size - 1];
+    }
+
+    public int removeLast() {
+        return moves[--size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * 查找起点、终点相同的走法，返回下标，不存在返回 -1
+     */
+    public int indexOf(int move) {
+        int squares = Move.squares(move);
+        for (int i = 0; i < size; i++) {
+            if (Move.squares(moves[i]) == squares) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 供走法生成直接写入底层数组：保证至少还能容纳 count 个走法
+     */
+    int[] reserve(int count) {
+        if (size + count > moves.length) {
+            moves = Arrays.copyOf(moves, Math.max(moves.length * 2, size + count));
+        }
+        return moves;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,163 @@
+package com.achldm.chess.game;
+
+import static com.achldm.chess.game.ChessBoard.BOARD_SIZE;
+import static com.achldm.chess.game.ChessBoard.inBoard;
+import static com.achldm.chess.game.ChessBoard.inPalace;
+import static com.achldm.chess.game.ChessBoard.isRedSide;
+
+/**
+ * 预先计算的走法表
+ *
+ * 类加载时为每个格子（以及兵/卒、相/象的每一方）生成一次目标格子列表，
+ * 马和相/象同时记录对应的马腿、象眼格子。九宫、过河等限制已经体现在表中，
+ * 走法校验和生成只需遍历表项并检查阻挡格是否为空。
+ *
+ * 表按格子编号（ChessBoard 的 16x16 信箱坐标）索引，棋盘外的格子对应空数组。
+ */
+public final class MoveTables {
+    private static final int[] KING_DELTAS = {-16, -1, 1, 16};
+    private static final int[] ADVISOR_DELTAS = {-17, -15, 15, 17};
+    private static final int[] ELEPHANT_DELTAS = {-34, -30, 30, 34};
+    // 马的8个方向，与 HORSE_LEG_DELTAS 一一对应
+    private static final int[] HORSE_DELTAS = {-33, -31, -18, -14, 14, 18, 31, 33};
+    private static final int[] HORSE_LEG_DELTAS = {-16, -16, -1, 1, -1, 1, 16, 16};
+
+    private static final int[] EMPTY = new int[0];
+
+    /** 帅/将：九宫内上下左右一格 */
+    public static final int[][] KING_MOVES = new int[BOARD_SIZE][];
+    /** 仕/士：九宫内斜走一格 */
+    public static final int[][] ADVISOR_MOVES = new int[BOARD_SIZE][];
+    /** 相/象：不过河的田字，ELEPHANT_EYES 为对应的象眼 */
+    public static final int[][] ELEPHANT_MOVES = new int[BOARD_SIZE][];
+    public static final int[][] ELEPHANT_EYES = new int[BOARD_SIZE][];
+    /** 马：日字，HORSE_LEGS 为对应的马腿 */
+    public static final int[][] HORSE_MOVES = new int[BOARD_SIZE][];
+    public static final int[][] HORSE_LEGS = new int[BOARD_SIZE][];
+    /** 兵/卒：[0] 红方，[1] 黑方，未过河只能前进，过河后可以左右 */
+    public static final int[][][] SOLDIER_MOVES = new int[2][BOARD_SIZE][];
+    /** 能跳到该格的马所在格子（反向马表，用于将军检测），HORSE_ATTACK_LEGS 为对应的马腿 */
+    public static final int[][] HORSE_ATTACKERS = new int[BOARD_SIZE][];
+    public static final int[][] HORSE_ATTACK_LEGS = new int[BOARD_SIZE][];
+
+    static {
+        for (int sq = 0; sq < BOARD_SIZE; sq++) {
+            KING_MOVES[sq] = ADVISOR_MOVES[sq] = EMPTY;
+            ELEPHANT_MOVES[sq] = ELEPHANT_EYES[sq] = EMPTY;
+            HORSE_MOVES[sq] = HORSE_LEGS[sq] = EMPTY;
+            SOLDIER_MOVES[0][sq] = SOLDIER_MOVES[1][sq] = EMPTY;
+            if (!inBoard(sq)) {
+                continue;
+            }
+
+            if (inPalace(sq)) {
+                KING_MOVES[sq] = collect(sq, KING_DELTAS, true);
+                ADVISOR_MOVES[sq] = collect(sq, ADVISOR_DELTAS, true);
+            }
+
+            int[] targets = new int[4];
+            int[] eyes = new int[4];
+            int count = 0;
+            for (int delta : ELEPHANT_DELTAS) {
+                int to = sq + delta;
+                if (inBoard(to) && isRedSide(to) == isRedSide(sq)) {
+                    targets[count] = to;
+                    eyes[count++] = sq + delta / 2;
+                }
+            }
+            ELEPHANT_MOVES[sq] = trim(targets, count);
+            ELEPHANT_EYES[sq] = trim(eyes, count);
+
+            targets = new int[8];
+            int[] legs = new int[8];
+            count = 0;
+            for (int i = 0; i < HORSE_DELTAS.length; i++) {
+                int to = sq + HORSE_DELTAS[i];
+                if (inBoard(to)) {
+                    targets[count] = to;
+                    legs[count++] = sq + HORSE_LEG_DELTAS[i];
+                }
+            }
+            HORSE_MOVES[sq] = trim(targets, count);
+            HORSE_LEGS[sq] = trim(legs, count);
+
+            SOLDIER_MOVES[0][sq] = soldierMoves(sq, true);
+            SOLDIER_MOVES[1][sq] = soldierMoves(sq, false);
+        }
+
+        // 由马的走法表反推：每个格子可以被哪些格子上的马攻击
+        int[] attackerCount = new int[BOARD_SIZE];
+        for (int sq = 0; sq < BOARD_SIZE; sq++) {
+            for (int to : HORSE_MOVES[sq]) {
+                attackerCount[to]++;
+            }
+        }
+        for (int sq = 0; sq < BOARD_SIZE; sq++) {
+            HORSE_ATTACKERS[sq] = attackerCount[sq] == 0 ? EMPTY : new int[attackerCount[sq]];
+            HORSE_ATTACK_LEGS[sq] = attackerCount[sq] == 0 ? EMPTY : new int[attackerCount[sq]];
+            attackerCount[sq] = 0;
+        }
+        for (int sq = 0; sq < BOARD_SIZE; sq++) {
+            for (int i = 0; i < HORSE_MOVES[sq].length; i++) {
+                int to = HORSE_MOVES[sq][i];
+                HORSE_ATTACKERS[to][attackerCount[to]] = sq;
+                HORSE_ATTACK_LEGS[to][attackerCount[to]++] = HORSE_LEGS[sq][i];
+            }
+        }
+    }
+
+    private MoveTables() {
+    }
+
+    private static int[] collect(int sq, int[] deltas, boolean palaceOnly) {
+        int[] targets = new int[deltas.length];
+        int count = 0;
+        for (int delta : deltas) {
+            int to = sq + delta;
+            if (inBoard(to) && (!palaceOnly || inPalace(to))) {
+                targets[count++] = to;
+            }
+        }
+        return trim(targets, count);
+    }
+
+    private static int[] soldierMoves(int sq, boolean red) {
+        int[] targets = new int[3];
+        int count = 0;
+        int forward = sq + (red ? -16 : 16);
+        if (inBoard(forward)) {
+            targets[count++] = forward;
+        }
+        // 过河（位于对方一侧）后可以左右平移
+        if (isRedSide(sq) != red) {
+            if (inBoard(sq - 1)) {
+                targets[count++] = sq - 1;
+            }
+            if (inBoard(sq + 1)) {
+                targets[count++] = sq + 1;
+            }
+        }
+        return trim(targets, count);
+    }
+
+    private static int[] trim(int[] values, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        int[] result = new int[count];
+        System.arraycopy(values, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * 在走法表中查找目标格子，返回下标，不存在返回 -1
+     */
+    public static int indexOf(int[] targets, int to) {
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] == to) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,53 +1,115 @@
 package com.achldm.chess.server;
 
+import com.achldm.chess.common.EncodedMessage;
 import com.achldm.chess.common.GameMessage;
 
 import java.io.*;
 import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 客户端处理器
+ * 阻塞模式下作为读线程（平台线程或虚拟线程）的任务运行，NIO模式下由事件循环回调 handleMessage
  */
-public class ClientHandler extends Thread {
-    private Socket socket;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+public class ClientHandler implements Runnable {
+    public static final int DEFAULT_RATING = 1500;
+    
+    private final Connection connection;
     private GameServer server;
-    private String username;
+    private volatile String username;
+    private volatile GameRoom gameRoom;  // 当前所在的游戏房间，O(1) 查找
+    private volatile Matchmaker.Ticket matchTicket;  // 匹配队列中的票据，未在匹配时为 null
+    private volatile int rating = DEFAULT_RATING;  // 等级分，用于匹配分桶
+    private final AtomicBoolean disconnected = new AtomicBoolean(false);
+    private volatile long lastSeenNanos = System.nanoTime();  // 最近一次收到消息的时间
+    private volatile HashedWheelTimer.Timeout idleTimeout;
     
-    public ClientHandler(Socket socket, GameServer server) {
-        this.socket = socket;
+    /**
+     * 阻塞模式：创建连接失败时抛出异常，由调用方关闭 socket
+     */
+    public ClientHandler(Socket socket, GameServer server) throws IOException {
+        this.server = server;
+        this.connection = new SocketConnection(socket, server.getWriterExecutor(), server.getConfig());
+    }
+    
+    public ClientHandler(Connection connection, GameServer server) {
+        this.connection = connection;
         this.server = server;
-        
-        try {
-            out = new ObjectOutputStream(socket.getOutputStream());
-            in = new ObjectInputStream(socket.getInputStream());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
     }
     
     @Override
     public void run() {
         try {
-            while (!socket.isClosed()) {
-                GameMessage message = (GameMessage) in.readObject();
+            if (!(connection instanceof SocketConnection)) {
+                throw new IllegalStateException("只有阻塞式连接需要读线程");
+            }
+            SocketConnection socketConnection = (SocketConnection) connection;
+            socketConnection.handshake(server.getConfig().isBinaryProtocol());
+            startIdleCheck();
+            while (socketConnection.isOpen()) {
+                GameMessage message = socketConnection.readMessage();
                 handleMessage(message);
             }
-        } catch (IOException | ClassNotFoundException e) {
-            if (!socket.isClosed()) {
+        } catch (IOException e) {
+            if (connection.isOpen()) {
                 System.out.println("客户端连接异常: " + e.getMessage());
             }
         } finally {
+            handleDisconnect();
+        }
+    }
+    
+    /**
+     * 连接断开后的清理，只执行一次
+     */
+    void handleDisconnect() {
+        if (disconnected.compareAndSet(false, true)) {
+            HashedWheelTimer.Timeout timeout = idleTimeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
             server.handleClientDisconnect(this);
             closeConnection();
         }
     }
     
+    /**
+     * 开始空闲检测：每个连接在时间轮上只有一个检测任务，
+     * 收到消息时只更新时间戳，检测任务到期时再根据时间戳决定断开还是顺延
+     */
+    void startIdleCheck() {
+        int idleSeconds = server.getConfig().getIdleTimeoutSeconds();
+        if (idleSeconds > 0) {
+            lastSeenNanos = System.nanoTime();
+            scheduleIdleCheck(TimeUnit.SECONDS.toNanos(idleSeconds));
+        }
+    }
+    
+    private void scheduleIdleCheck(long delayNanos) {
+        idleTimeout = server.getTimer().newTimeout(this::checkIdle, delayNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    private void checkIdle() {
+        if (disconnected.get()) {
+            return;
+        }
+        long idleNanos = TimeUnit.SECONDS.toNanos(server.getConfig().getIdleTimeoutSeconds());
+        long elapsed = System.nanoTime() - lastSeenNanos;
+        if (elapsed >= idleNanos) {
+            System.out.println("客户端长时间无响应，断开连接: " + (username != null ? username : getSocket()));
+            // 关闭连接后由读线程或事件循环走正常的断开流程
+            closeConnection();
+        } else {
+            scheduleIdleCheck(idleNanos - elapsed);
+        }
+    }
+    
     /**
      * 处理接收到的消息
      */
-    private void handleMessage(GameMessage message) {
+    void handleMessage(GameMessage message) {
+        lastSeenNanos = System.nanoTime();
         switch (message.getType()) {
             case LOGIN:
                 handleLogin(message);
@@ -57,6 +119,10 @@ public class ClientHandler extends Thread {
                 server.handleMatchRequest(this);
                 break;
                 
+            case MATCH_CANCEL:
+                server.handleMatchCancel(this);
+                break;
+                
             case MOVE:
                 server.handleGameMove(message, this);
                 break;
@@ -118,11 +184,17 @@ public class ClientHandler extends Thread {
     /**
      * 发送消息给客户端
      */
-    public synchronized void sendMessage(GameMessage message) {
+    public void sendMessage(GameMessage message) {
+        sendMessage(new EncodedMessage(message));
+    }
+    
+    /**
+     * 发送已编码的消息，广播时所有接收者共享同一份编码结果
+     */
+    public void sendMessage(EncodedMessage message) {
         try {
-            if (socket != null && !socket.isClosed() && out != null) {
-                out.writeObject(message);
-                out.flush();
+            if (connection != null && connection.isOpen()) {
+                connection.send(message);
                 System.out.println("发送消息给 " + username + ": " + message.getType());
             } else {
                 System.err.println("客户端连接已断开，无法发送消息: " + message.getType());
@@ -137,12 +209,8 @@ public class ClientHandler extends Thread {
      * 关闭连接
      */
     private void closeConnection() {
-        try {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (connection != null) {
+            connection.close();
         }
     }
     
@@ -155,7 +223,38 @@ public class ClientHandler extends Thread {
         this.username = username;
     }
     
+    public GameRoom getGameRoom() {
+        return gameRoom;
+    }
+    
+    public void setGameRoom(GameRoom gameRoom) {
+        this.gameRoom = gameRoom;
+    }
+    
+    Matchmaker.Ticket getMatchTicket() {
+        return matchTicket;
+    }
+    
+    void setMatchTicket(Matchmaker.Ticket matchTicket) {
+        this.matchTicket = matchTicket;
+    }
+    
+    public int getRating() {
+        return rating;
+    }
+    
+    public void setRating(int rating) {
+        this.rating = Math.max(0, rating);
+    }
+    
+    /**
+     * 连接是否仍然有效（尚未走断开清理流程）
+     */
+    public boolean isConnected() {
+        return !disconnected.get() && connection != null && connection.isOpen();
+    }
+    
     public Socket getSocket() {
-        return socket;
+        return connection != null ? connection.getSocket() : null;
     }
 }
\ No newline at end of file
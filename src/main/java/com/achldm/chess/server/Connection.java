@@ -0,0 +1,36 @@
+package com.achldm.chess.server;
+
+import com.achldm.chess.common.EncodedMessage;
+import com.achldm.chess.common.GameMessage;
+
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * 客户端连接的传输层抽象
+ * 阻塞式（每连接一个线程）和NIO两种传输方式都实现该接口，
+ * ClientHandler 只通过它收发消息
+ */
+public interface Connection {
+
+    /**
+     * 发送消息，可以在任意线程调用
+     */
+    default void send(GameMessage message) throws IOException {
+        send(new EncodedMessage(message));
+    }
+
+    /**
+     * 发送已编码的消息，广播时多个连接共享同一个 EncodedMessage，每种编解码器只编码一次
+     */
+    void send(EncodedMessage message) throws IOException;
+
+    /**
+     * 关闭连接，可以重复调用
+     */
+    void close();
+
+    boolean isOpen();
+
+    Socket getSocket();
+}
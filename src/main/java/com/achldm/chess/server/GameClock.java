@@ -0,0 +1,104 @@
+package com.achldm.chess.server;
+
+/**
+ * 对局棋钟（费舍尔加秒制）
+ *
+ * 不需要任何定时线程：只记录当前行棋方开始计时的单调时间戳，
+ * 收到走棋时用时间差扣减剩余时间并加秒，查询时按当前时间推算。
+ * 非线程安全，只在房间所属的分片线程中使用。
+ */
+public class GameClock {
+    private final long incrementNanos;
+    private long redRemainingNanos;
+    private long blackRemainingNanos;
+    private boolean redToMove = true;
+    private long turnStartNanos;
+    private boolean running = false;
+
+    public GameClock(long initialMillis, long incrementMillis) {
+        this.redRemainingNanos = initialMillis * 1_000_000L;
+        this.blackRemainingNanos = initialMillis * 1_000_000L;
+        this.incrementNanos = incrementMillis * 1_000_000L;
+    }
+
+    /**
+     * 开始计时（红方先行）
+     */
+    public void start(long now) {
+        turnStartNanos = now;
+        running = true;
+    }
+
+    public void stop(long now) {
+        if (running) {
+            chargeElapsed(now);
+            running = false;
+        }
+    }
+
+    /**
+     * 行棋方走完一步：扣除用时，未超时则加秒并切换到对方计时
+     * @return 走棋时是否仍有剩余时间（false 表示已超时，棋钟不再切换）
+     */
+    public boolean onMove(long now) {
+        chargeElapsed(now);
+        if (remainingNanos(redToMove) <= 0) {
+            return false;
+        }
+        if (redToMove) {
+            redRemainingNanos += incrementNanos;
+        } else {
+            blackRemainingNanos += incrementNanos;
+        }
+        redToMove = !redToMove;
+        return true;
+    }
+
+    /**
+     * 悔棋后切换行棋方：扣除当前方已用时间，不加秒
+     */
+    public void switchSide(long now) {
+        chargeElapsed(now);
+        redToMove = !redToMove;
+    }
+
+    private void chargeElapsed(long now) {
+        long elapsed = now - turnStartNanos;
+        if (redToMove) {
+            redRemainingNanos -= elapsed;
+        } else {
+            blackRemainingNanos -= elapsed;
+        }
+        turnStartNanos = now;
+    }
+
+    private long remainingNanos(boolean red) {
+        return red ? redRemainingNanos : blackRemainingNanos;
+    }
+
+    /**
+     * 指定一方在 now 时刻的剩余时间（毫秒），不小于0
+     */
+    public long getRemainingMillis(boolean red, long now) {
+        long remaining = remainingNanos(red);
+        if (running && red == redToMove) {
+            remaining -= now - turnStartNanos;
+        }
+        return Math.max(0, remaining / 1_000_000L);
+    }
+
+    /**
+     * 当前行棋方距离超时还有多少纳秒
+     */
+    public long nanosUntilFlag(long now) {
+        return remainingNanos(redToMove) - (now - turnStartNanos);
+    }
+
+    public boolean isRedToMove() {
+        return redToMove;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -1,64 +1,102 @@
 package com.achldm.chess.server;
 
-import com.achldm.chess.client.ui.GameFrame;
+import com.achldm.chess.common.EncodedMessage;
 import com.achldm.chess.common.GameMessage;
-import com.achldm.chess.common.ChessPiece;
 import com.achldm.chess.game.ChessBoard;
+import com.achldm.chess.game.Move;
+import com.achldm.chess.game.MoveList;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * 游戏房间类
+ * 房间以 Actor 方式运行：所有 handleXxx 方法都必须通过 execute 投递到房间所属的分片线程执行，
+ * 因此棋盘、历史记录等状态只会被一个线程访问，不需要加锁
  */
 public class GameRoom {
     private String roomId;
+    private GameServer server;
+    private final ShardedRoomExecutor.Shard shard;
     private ClientHandler redPlayer;
     private ClientHandler blackPlayer;
     private ChessBoard chessBoard;
-    private boolean gameStarted = false;
-    
-    // 游戏历史记录，用于悔棋功能
-    private List<GameMove> moveHistory = new ArrayList<>();
-    private List<ChessBoard> boardHistory = new ArrayList<>(); // 保存棋盘状态历史
-    
-    // 内部类：游戏移动记录
-    private static class GameMove {
-        int fromX, fromY, toX, toY;
-        ChessPiece capturedPiece; // 被吃掉的棋子（如果有的话）
-        boolean wasRedTurn; // 移动时是否是红方回合
-        
-        GameMove(int fromX, int fromY, int toX, int toY, ChessPiece capturedPiece, boolean wasRedTurn) {
-            this.fromX = fromX;
-            this.fromY = fromY;
-            this.toX = toX;
-            this.toY = toY;
-            this.capturedPiece = capturedPiece;
-            this.wasRedTurn = wasRedTurn;
+    private volatile boolean gameStarted = false;
+    private final GameClock clock;
+    private HashedWheelTimer.Timeout flagTimeout;  // 当前行棋方的超时检测
+    private final RepetitionTracker repetition;  // 重复局面和自然限着判定，与走棋历史同步增减
+    
+    // 走棋历史（用于悔棋）：每步一个 Move 编码（含被吃的棋子），悔棋时在当前棋盘上逐步撤销，不保存棋盘副本
+    private final MoveList moveHistory = new MoveList(128);
+    
+    // 等待对手回应的悔棋、求和请求，超时由服务器时间轮自动拒绝
+    private PendingRequest pendingUndo;
+    private PendingRequest pendingDraw;
+    
+    // 内部类：等待回应的请求
+    private static class PendingRequest {
+        final ClientHandler requester;
+        HashedWheelTimer.Timeout timeout;
+        
+        PendingRequest(ClientHandler requester) {
+            this.requester = requester;
         }
     }
     
-    public GameRoom(String roomId, ClientHandler player1, ClientHandler player2) {
+    public GameRoom(String roomId, ClientHandler player1, ClientHandler player2, GameServer server) {
         this.roomId = roomId;
+        this.server = server;
+        this.shard = server.getRoomExecutor().shardFor(roomId);
         this.redPlayer = player1;  // 第一个玩家是红方
         this.blackPlayer = player2; // 第二个玩家是黑方
         this.chessBoard = new ChessBoard();
+        ServerConfig config = server.getConfig();
+        this.clock = new GameClock(config.getClockInitialSeconds() * 1000L, config.getClockIncrementSeconds() * 1000L);
+        this.repetition = new RepetitionTracker(chessBoard.hash(), config.getRepetitionLimit(), config.getNoCapturePlies());
         
-        // 保存初始棋盘状态
-        boardHistory.add(chessBoard.copy());
-        
-        startGame();
+        // 创建后即视为对局中（防止重复匹配），由 startGame 通知双方并开始计时
+        gameStarted = true;
     }
     
     /**
-     * 开始游戏
+     * 将任务投递到房间的邮箱，在房间所属的分片线程中执行
      */
-    private void startGame() {
-        gameStarted = true;
+    public void execute(Runnable task) {
+        shard.submit(task);
+    }
+    
+    /**
+     * 发送消息给房间内的双方，消息只编码一次
+     */
+    private void broadcast(GameMessage message) {
+        EncodedMessage encoded = new EncodedMessage(message);
+        redPlayer.sendMessage(encoded);
+        blackPlayer.sendMessage(encoded);
+    }
+    
+    /**
+     * 开始游戏：通知双方匹配成功和开局，并开始计时
+     */
+    public void startGame() {
+        if (!gameStarted) return;  // 开局前已有玩家断开
+        
+        long now = System.nanoTime();
+        clock.start(now);
+        
+        GameMessage matchMsg1 = new GameMessage(GameMessage.MessageType.MATCH_FOUND);
+        matchMsg1.setRed(true);  // 第一个玩家是红方
+        fillClock(matchMsg1, now);
+        redPlayer.sendMessage(matchMsg1);
+        
+        GameMessage matchMsg2 = new GameMessage(GameMessage.MessageType.MATCH_FOUND);
+        matchMsg2.setRed(false); // 第二个玩家是黑方
+        fillClock(matchMsg2, now);
+        blackPlayer.sendMessage(matchMsg2);
         
         GameMessage startMsg = new GameMessage(GameMessage.MessageType.GAME_START);
-        redPlayer.sendMessage(startMsg);
-        blackPlayer.sendMessage(startMsg);
+        fillClock(startMsg, now);
+        broadcast(startMsg);
+        scheduleFlagCheck(now);
         
         System.out.println("游戏开始 - 房间: " + roomId);
     }
@@ -78,51 +116,189 @@ public class GameRoom {
             return;
         }
         
-        // 验证移动是否合法
-        int fromX = moveMessage.getFromX();
-        int fromY = moveMessage.getFromY();
-        int toX = moveMessage.getToX();
-        int toY = moveMessage.getToY();
+        // 以收到走棋的时间为准，已超时的走棋无效
+        long now = System.nanoTime();
+        if (clock.nanosUntilFlag(now) <= 0) {
+            handleFlagFall();
+            return;
+        }
+        
+        // 验证移动是否合法，合法时得到包含被吃棋子的完整走法
+        int move = chessBoard.findLegalMove(Move.from(moveMessage.getMove()), Move.to(moveMessage.getMove()));
         
-        if (chessBoard.isValidMove(fromX, fromY, toX, toY)) {
-            // 记录被吃掉的棋子（如果有的话）
-            ChessPiece capturedPiece = chessBoard.getPiece(toX, toY);
-            boolean wasRedTurn = chessBoard.isRedTurn();
-            
-            // 执行移动
-            chessBoard.movePiece(fromX, fromY, toX, toY);
-            
-            // 保存移动后的棋盘状态（用于悔棋恢复）
-            ChessBoard afterMove = chessBoard.copy();
-            
-            // 记录移动历史
-            moveHistory.add(new GameMove(fromX, fromY, toX, toY, capturedPiece, wasRedTurn));
-            boardHistory.add(afterMove);
+        if (move != Move.NONE) {
+            // 执行移动并记录历史
+            chessBoard.doMove(move);
+            boolean check = chessBoard.isInCheck();
+            moveHistory.add(check ? move | Move.FLAG_CHECK : move);
             
-            // 转发移动消息给对手
+            // 切换棋钟，转发移动消息给对手，并向走棋方确认（都附带双方剩余时间）
+            clock.onMove(now);
+            fillClock(moveMessage, now);
             ClientHandler opponent = senderIsRed ? blackPlayer : redPlayer;
             opponent.sendMessage(moveMessage);
             
-            // 检查游戏是否结束
+            GameMessage moveAck = new GameMessage(GameMessage.MessageType.MOVE_ACK);
+            fillClock(moveAck, now);
+            sender.sendMessage(moveAck);
+            scheduleFlagCheck(now);
+            
+            // 对手已经走棋，之前的悔棋请求失效
+            if (pendingUndo != null) {
+                rejectPendingUndo("对手已走棋，悔棋请求失效");
+            }
+            
+            // 对方无合法走法即终局：被将军为绝杀，否则为困毙，都判走棋方获胜
             if (chessBoard.isGameOver()) {
-                handleGameOver(senderIsRed);
+                handleGameOver(senderIsRed, check ? "绝杀" : "困毙");
+                return;
+            }
+            
+            // 双方都只剩将帅仕相，谁都无法将死对方
+            if (Move.isCapture(move) && !chessBoard.hasAttackingPieces(true) && !chessBoard.hasAttackingPieces(false)) {
+                handleAdjudicatedDraw("双方均无进攻子力，判和");
+                return;
+            }
+            
+            // 重复局面、自然限着判定
+            int to = Move.to(move);
+            boolean chase = !check && chessBoard.isChasing(ChessBoard.fileOf(to), ChessBoard.rankOf(to));
+            RepetitionTracker.Verdict verdict = repetition.onMove(chessBoard.hash(), Move.isCapture(move), check, chase);
+            if (verdict != RepetitionTracker.Verdict.NONE) {
+                adjudicate(verdict);
             }
         }
     }
     
+    /**
+     * 在当前棋盘上撤销最后一步，返回该步走法
+     */
+    private int unmakeLastMove() {
+        int move = moveHistory.removeLast();
+        chessBoard.undoMove(move);
+        repetition.undo();
+        return move;
+    }
+    
+    /**
+     * 按重复局面/自然限着的判定结果结束对局
+     */
+    private void adjudicate(RepetitionTracker.Verdict verdict) {
+        switch (verdict) {
+            case RED_PERPETUAL_CHECK:
+                handleGameOver(false, "红方长将");
+                break;
+            case BLACK_PERPETUAL_CHECK:
+                handleGameOver(true, "黑方长将");
+                break;
+            case RED_PERPETUAL_CHASE:
+                handleGameOver(false, "红方长捉");
+                break;
+            case BLACK_PERPETUAL_CHASE:
+                handleGameOver(true, "黑方长捉");
+                break;
+            case DRAW_REPETITION:
+                handleAdjudicatedDraw("重复局面，判和");
+                break;
+            case DRAW_NO_CAPTURE:
+                handleAdjudicatedDraw("连续" + server.getConfig().getNoCapturePlies() / 2 + "回合未吃子，判和");
+                break;
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * 判和：沿用求和成功的消息通知双方
+     */
+    private void handleAdjudicatedDraw(String reason) {
+        finishGame();
+        
+        GameMessage drawMsg = new GameMessage(GameMessage.MessageType.DRAW_RESPONSE);
+        drawMsg.setAccepted(true);
+        drawMsg.setReason(reason);
+        broadcast(drawMsg);
+        
+        System.out.println("判和 - 房间: " + roomId + ", " + reason);
+    }
+    
     /**
      * 处理游戏结束
      */
-    private void handleGameOver(boolean redWin) {
-        gameStarted = false;
+    private void handleGameOver(boolean redWin, String reason) {
+        finishGame();
         
         GameMessage gameOverMsg = new GameMessage(GameMessage.MessageType.GAME_OVER);
         gameOverMsg.setRed(redWin);
+        gameOverMsg.setReason(reason);
         
-        redPlayer.sendMessage(gameOverMsg);
-        blackPlayer.sendMessage(gameOverMsg);
+        broadcast(gameOverMsg);
         
-        System.out.println("游戏结束 - 房间: " + roomId + ", 获胜方: " + (redWin ? "红方" : "黑方"));
+        System.out.println("游戏结束 - 房间: " + roomId + ", 获胜方: " + (redWin ? "红方" : "黑方") + ", " + reason);
+    }
+    
+    /**
+     * 填入双方剩余时间
+     */
+    private void fillClock(GameMessage message, long now) {
+        message.setRedTimeMillis(clock.getRemainingMillis(true, now));
+        message.setBlackTimeMillis(clock.getRemainingMillis(false, now));
+    }
+    
+    /**
+     * 在服务器时间轮上为当前行棋方设置超时检测，替换之前的检测
+     * 检测只是投递回房间邮箱，由房间线程根据棋钟重新判断，因此过期的检测不会误判
+     */
+    private void scheduleFlagCheck(long now) {
+        if (flagTimeout != null) {
+            flagTimeout.cancel();
+        }
+        long delay = Math.max(0, clock.nanosUntilFlag(now));
+        flagTimeout = server.getTimer().newTimeout(() -> execute(this::checkFlag), delay, TimeUnit.NANOSECONDS);
+    }
+    
+    private void checkFlag() {
+        if (!gameStarted) return;
+        long now = System.nanoTime();
+        if (clock.nanosUntilFlag(now) <= 0) {
+            handleFlagFall();
+        } else {
+            scheduleFlagCheck(now);
+        }
+    }
+    
+    /**
+     * 当前行棋方超时判负
+     */
+    private void handleFlagFall() {
+        boolean redWin = !clock.isRedToMove();
+        long now = System.nanoTime();
+        finishGame();
+        
+        GameMessage gameOverMsg = new GameMessage(GameMessage.MessageType.GAME_OVER);
+        gameOverMsg.setRed(redWin);
+        gameOverMsg.setReason("超时");
+        fillClock(gameOverMsg, now);
+        broadcast(gameOverMsg);
+        
+        System.out.println("超时判负 - 房间: " + roomId + ", 获胜方: " + (redWin ? "红方" : "黑方"));
+    }
+    
+    /**
+     * 结束对局并通知服务器回收房间
+     */
+    private void finishGame() {
+        gameStarted = false;
+        clock.stop(System.nanoTime());
+        if (flagTimeout != null) {
+            flagTimeout.cancel();
+            flagTimeout = null;
+        }
+        cancelPending(pendingUndo);
+        cancelPending(pendingDraw);
+        pendingUndo = null;
+        pendingDraw = null;
+        server.removeRoom(this);
     }
     
     /**
@@ -131,7 +307,7 @@ public class GameRoom {
     public void handlePlayerDisconnect(ClientHandler disconnectedPlayer) {
         if (!gameStarted) return;
         
-        gameStarted = false;
+        finishGame();
         
         // 通知另一个玩家对手已断开连接
         ClientHandler otherPlayer = (disconnectedPlayer == redPlayer) ? blackPlayer : redPlayer;
@@ -177,12 +353,9 @@ public class GameRoom {
             return;
         }
         
-        // 检查是否是刚下完棋的一方请求悔棋
-        GameMove lastMove = moveHistory.get(moveHistory.size() - 1);
+        // 只有刚下完棋的一方（即当前不该走棋的一方）才能请求悔棋
         boolean senderIsRed = (sender == redPlayer);
-        
-        // 只有刚下完棋的一方才能请求悔棋
-        if (lastMove.wasRedTurn != senderIsRed) {
+        if (chessBoard.isRedTurn() == senderIsRed) {
             GameMessage response = new GameMessage(GameMessage.MessageType.UNDO_RESPONSE);
             response.setAccepted(false);
             response.setReason("只有刚下完棋的一方才能请求悔棋");
@@ -190,9 +363,18 @@ public class GameRoom {
             return;
         }
         
+        if (pendingUndo != null) {
+            GameMessage response = new GameMessage(GameMessage.MessageType.UNDO_RESPONSE);
+            response.setAccepted(false);
+            response.setReason("已有等待回应的悔棋请求");
+            sender.sendMessage(response);
+            return;
+        }
+        
         // 转发悔棋请求给对手
         ClientHandler opponent = (sender == redPlayer) ? blackPlayer : redPlayer;
         if (opponent != null) {
+            pendingUndo = newPendingRequest(sender, this::expireUndoRequest);
             GameMessage undoRequest = new GameMessage(GameMessage.MessageType.UNDO_REQUEST);
             undoRequest.setUsername(sender.getUsername());
             opponent.sendMessage(undoRequest);
@@ -208,35 +390,37 @@ public class GameRoom {
         ClientHandler opponent = (sender == redPlayer) ? blackPlayer : redPlayer;
         if (opponent == null) return;
         
-        if (response.isAccepted() && !moveHistory.isEmpty() && boardHistory.size() > 1) {
-            // 同意悔棋，撤销最后一步
-            GameMove lastMove = moveHistory.remove(moveHistory.size() - 1);
-            boardHistory.remove(boardHistory.size() - 1);
-            
-            // 恢复到悔棋前的状态
-            // boardHistory现在的最后一个状态就是悔棋请求方移动前的状态
-            ChessBoard previousState = boardHistory.get(boardHistory.size() - 1);
-            chessBoard.restoreFrom(previousState);
+        // 只接受对当前悔棋请求的回应（超时后迟到的回应直接忽略）
+        if (pendingUndo == null || pendingUndo.requester != opponent) return;
+        cancelPending(pendingUndo);
+        pendingUndo = null;
+        
+        if (response.isAccepted() && !moveHistory.isEmpty()) {
+            // 同意悔棋，撤销最后一步，恢复到悔棋请求方移动前的状态
+            int lastMove = unmakeLastMove();
             
-            System.out.println("悔棋详情 - 撤销移动: (" + lastMove.fromX + "," + lastMove.fromY + 
-                             ") -> (" + lastMove.toX + "," + lastMove.toY + ")");
+            System.out.println("悔棋详情 - 撤销移动: " + Move.toString(lastMove));
             System.out.println("悔棋后轮到: " + (chessBoard.isRedTurn() ? "红方" : "黑方"));
             
             // 发送棋盘刷新消息给双方
+            // 棋钟切回悔棋方
+            long now = System.nanoTime();
+            clock.switchSide(now);
+            scheduleFlagCheck(now);
+            
             GameMessage undoRefreshMsg = new GameMessage(GameMessage.MessageType.UNDO_REFRESH);
             undoRefreshMsg.setRed(chessBoard.isRedTurn()); // 告诉客户端现在轮到谁
-            undoRefreshMsg.setBoardState(chessBoard.serialize()); // 发送完整棋盘状态
+            undoRefreshMsg.setBoardState(chessBoard.toFen()); // 发送完整棋盘状态（FEN）
+            fillClock(undoRefreshMsg, now);
             
-            redPlayer.sendMessage(undoRefreshMsg);
-            blackPlayer.sendMessage(undoRefreshMsg);
+            broadcast(undoRefreshMsg);
             
             // 通知双方悔棋成功
             GameMessage undoSuccess = new GameMessage(GameMessage.MessageType.UNDO_RESPONSE);
             undoSuccess.setAccepted(true);
             undoSuccess.setContent("悔棋成功");
             
-            redPlayer.sendMessage(undoSuccess);
-            blackPlayer.sendMessage(undoSuccess);
+            broadcast(undoSuccess);
             
             System.out.println("悔棋成功 - 房间: " + roomId + ", 恢复到之前的状态");
         } else {
@@ -254,9 +438,18 @@ public class GameRoom {
     public void handleDrawRequest(ClientHandler sender) {
         if (!gameStarted) return;
         
+        if (pendingDraw != null) {
+            GameMessage response = new GameMessage(GameMessage.MessageType.DRAW_RESPONSE);
+            response.setAccepted(false);
+            response.setReason("已有等待回应的求和请求");
+            sender.sendMessage(response);
+            return;
+        }
+        
         // 转发求和请求给对手
         ClientHandler opponent = (sender == redPlayer) ? blackPlayer : redPlayer;
         if (opponent != null) {
+            pendingDraw = newPendingRequest(sender, this::expireDrawRequest);
             GameMessage drawRequest = new GameMessage(GameMessage.MessageType.DRAW_REQUEST);
             drawRequest.setUsername(sender.getUsername());
             opponent.sendMessage(drawRequest);
@@ -272,16 +465,20 @@ public class GameRoom {
         ClientHandler opponent = (sender == redPlayer) ? blackPlayer : redPlayer;
         if (opponent == null) return;
         
+        // 只接受对当前求和请求的回应
+        if (pendingDraw == null || pendingDraw.requester != opponent) return;
+        cancelPending(pendingDraw);
+        pendingDraw = null;
+        
         if (response.isAccepted()) {
             // 同意求和，游戏结束
-            gameStarted = false;
+            finishGame();
             
             GameMessage drawAccepted = new GameMessage(GameMessage.MessageType.DRAW_RESPONSE);
             drawAccepted.setAccepted(true);
             drawAccepted.setContent("双方同意求和");
             
-            redPlayer.sendMessage(drawAccepted);
-            blackPlayer.sendMessage(drawAccepted);
+            broadcast(drawAccepted);
             
             System.out.println("游戏求和结束 - 房间: " + roomId);
         } else {
@@ -293,13 +490,64 @@ public class GameRoom {
         }
     }
     
+    /**
+     * 登记等待回应的请求，并在时间轮上设置超时（到期后投递回房间邮箱处理）
+     */
+    private PendingRequest newPendingRequest(ClientHandler requester, Consumer<PendingRequest> onExpire) {
+        PendingRequest request = new PendingRequest(requester);
+        request.timeout = server.getTimer().newTimeout(() -> execute(() -> onExpire.accept(request)),
+                server.getConfig().getRequestTimeoutSeconds(), TimeUnit.SECONDS);
+        return request;
+    }
+    
+    private void cancelPending(PendingRequest request) {
+        if (request != null && request.timeout != null) {
+            request.timeout.cancel();
+        }
+    }
+    
+    /**
+     * 悔棋请求超时，自动拒绝
+     */
+    private void expireUndoRequest(PendingRequest request) {
+        if (pendingUndo == request) {
+            rejectPendingUndo("对手未在规定时间内回应，悔棋请求已超时");
+        }
+    }
+    
+    private void rejectPendingUndo(String reason) {
+        ClientHandler requester = pendingUndo.requester;
+        cancelPending(pendingUndo);
+        pendingUndo = null;
+        
+        GameMessage undoRejected = new GameMessage(GameMessage.MessageType.UNDO_RESPONSE);
+        undoRejected.setAccepted(false);
+        undoRejected.setReason(reason);
+        requester.sendMessage(undoRejected);
+    }
+    
+    /**
+     * 求和请求超时，自动拒绝
+     */
+    private void expireDrawRequest(PendingRequest request) {
+        if (pendingDraw != request) {
+            return;
+        }
+        pendingDraw = null;
+        
+        GameMessage drawRejected = new GameMessage(GameMessage.MessageType.DRAW_RESPONSE);
+        drawRejected.setAccepted(false);
+        drawRejected.setReason("对手未在规定时间内回应，求和请求已超时");
+        request.requester.sendMessage(drawRejected);
+    }
+    
     /**
      * 处理认输
      */
     public void handleSurrender(ClientHandler sender) {
         if (!gameStarted) return;
         
-        gameStarted = false;
+        finishGame();
         boolean senderIsRed = (sender == redPlayer);
         
         // 通知双方认输结果
@@ -307,25 +555,11 @@ public class GameRoom {
         surrenderMsg.setUsername(sender.getUsername());
         surrenderMsg.setRed(!senderIsRed); // 对方获胜
         
-        redPlayer.sendMessage(surrenderMsg);
-        blackPlayer.sendMessage(surrenderMsg);
+        broadcast(surrenderMsg);
         
         System.out.println("玩家认输 - 房间: " + roomId + ", 认输方: " + (senderIsRed ? "红方" : "黑方"));
     }
     
-    /**
-     * 从历史记录重建棋盘状态（备用方法）
-     */
-    private void rebuildBoardFromHistory() {
-        // 重新初始化棋盘
-        chessBoard = new ChessBoard();
-        
-        // 重新执行所有历史移动
-        for (GameMove move : moveHistory) {
-            chessBoard.movePiece(move.fromX, move.fromY, move.toX, move.toY);
-        }
-    }
-    
     // Getters
     public String getRoomId() {
         return roomId;
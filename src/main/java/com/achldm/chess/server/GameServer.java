@@ -1,39 +1,117 @@
 package com.achldm.chess.server;
 
+import com.achldm.chess.common.EncodedMessage;
 import com.achldm.chess.common.GameMessage;
 
 import java.io.*;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 游戏服务器
  */
 public class GameServer {
-    private static final int PORT = 8888;
+    private final ServerConfig config;
     
     private ServerSocket serverSocket;
+    private ServerSocketChannel serverChannel;
+    private NioEventLoop[] eventLoops;
+    private ExecutorService writerExecutor;  // 阻塞模式下执行各连接发送队列的写任务
     private ConcurrentHashMap<String, ClientHandler> clients = new ConcurrentHashMap<>();
-    private CopyOnWriteArrayList<ClientHandler> waitingClients = new CopyOnWriteArrayList<>();
-    private ConcurrentHashMap<String, GameRoom> gameRooms = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, GameRoom> gameRooms = new ConcurrentHashMap<>();  // 进行中的对局
+    private final AtomicLong roomSequence = new AtomicLong();
+    private final ShardedRoomExecutor roomExecutor;
+    private final ScheduledExecutorService scheduler;  // 服务器级别的周期任务（批量匹配、统计输出等）
+    private final Matchmaker matchmaker;
+    private final HashedWheelTimer timer;  // 心跳检测、请求超时等大量短期超时共用的时间轮
     
     public GameServer() {
+        this(ServerConfig.fromSystemProperties());
+    }
+    
+    public GameServer(ServerConfig config) {
+        this.config = config;
+        this.roomExecutor = new ShardedRoomExecutor(config.getRoomShards());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "server-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer = new HashedWheelTimer("server-timer", config.getTimerTickMillis(), 512);
+        this.matchmaker = new Matchmaker(config, this::createMatch);
+        scheduler.scheduleWithFixedDelay(this::runMatchmaker, config.getMatchIntervalMillis(),
+                config.getMatchIntervalMillis(), TimeUnit.MILLISECONDS);
+        if (config.getStatsIntervalSeconds() > 0) {
+            scheduler.scheduleAtFixedRate(this::printStats, config.getStatsIntervalSeconds(),
+                    config.getStatsIntervalSeconds(), TimeUnit.SECONDS);
+        }
         try {
-            serverSocket = new ServerSocket(PORT);
-            System.out.println("游戏服务器启动，监听端口: " + PORT);
+            if (config.getMode() == ServerConfig.Mode.NIO) {
+                serverChannel = ServerSocketChannel.open();
+                serverChannel.bind(new InetSocketAddress(config.getPort()));
+            } else {
+                serverSocket = new ServerSocket(config.getPort());
+            }
+            System.out.println("游戏服务器启动，监听端口: " + config.getPort() + "，模式: " + config.getMode());
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
     
     public void start() {
+        if (config.getMode() == ServerConfig.Mode.NIO) {
+            startNio();
+            return;
+        }
+        
+        ExecutorService virtualThreads = null;
+        if (config.getMode() == ServerConfig.Mode.VIRTUAL) {
+            virtualThreads = VirtualThreads.newPerTaskExecutor();
+            if (virtualThreads == null) {
+                System.err.println("当前JDK不支持虚拟线程（需要 Java 21+），改用平台线程");
+            }
+        }
+        
+        // 写任务只在有数据要发送时运行：虚拟线程模式下每个写任务一个虚拟线程，
+        // 否则使用按需扩展、空闲回收的平台线程池
+        if (virtualThreads != null) {
+            writerExecutor = virtualThreads;
+        } else {
+            AtomicInteger writerCount = new AtomicInteger();
+            writerExecutor = Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "socket-writer-" + writerCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        
         while (!serverSocket.isClosed()) {
             try {
                 Socket clientSocket = serverSocket.accept();
-                ClientHandler clientHandler = new ClientHandler(clientSocket, this);
-                clientHandler.start();
+                ClientHandler clientHandler;
+                try {
+                    clientHandler = new ClientHandler(clientSocket, this);
+                } catch (IOException e) {
+                    System.err.println("创建客户端连接失败: " + e.getMessage());
+                    clientSocket.close();
+                    continue;
+                }
+                if (virtualThreads != null) {
+                    virtualThreads.execute(clientHandler);
+                } else {
+                    new Thread(clientHandler, "client-" + clientSocket.getRemoteSocketAddress()).start();
+                }
                 System.out.println("新客户端连接: " + clientSocket.getInetAddress());
             } catch (IOException e) {
                 if (!serverSocket.isClosed()) {
@@ -43,13 +121,43 @@ public class GameServer {
         }
     }
     
+    /**
+     * NIO模式：接受连接后轮流分配给固定数量的事件循环线程
+     */
+    private void startNio() {
+        eventLoops = new NioEventLoop[config.getEventLoopThreads()];
+        try {
+            for (int i = 0; i < eventLoops.length; i++) {
+                eventLoops[i] = new NioEventLoop("nio-event-loop-" + i);
+                eventLoops[i].start();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        
+        int next = 0;
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                eventLoops[next].register(channel, this);
+                next = (next + 1) % eventLoops.length;
+                System.out.println("新客户端连接: " + channel.getRemoteAddress());
+            } catch (IOException e) {
+                if (serverChannel.isOpen()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+    
     /**
      * 处理客户端登录
      */
-    public synchronized boolean handleLogin(String username, String password, ClientHandler client) {
+    public boolean handleLogin(String username, String password, ClientHandler client) {
         // 简单的登录验证（实际项目中应该连接数据库）
-        if (username != null && !username.trim().isEmpty() && !clients.containsKey(username)) {
-            clients.put(username, client);
+        // putIfAbsent 保证同名用户只有一个能登录成功，无需全局锁
+        if (username != null && !username.trim().isEmpty() && clients.putIfAbsent(username, client) == null) {
             client.setUsername(username);
             return true;
         }
@@ -57,46 +165,79 @@ public class GameServer {
     }
     
     /**
-     * 处理匹配请求
+     * 处理匹配请求：加入匹配队列，由批量匹配任务配对
      */
-    public synchronized void handleMatchRequest(ClientHandler client) {
-        if (!waitingClients.contains(client)) {
-            waitingClients.add(client);
-            
-            // 如果有两个或以上等待的客户端，进行匹配
-            if (waitingClients.size() >= 2) {
-                ClientHandler player1 = waitingClients.remove(0);
-                ClientHandler player2 = waitingClients.remove(0);
-                
-                // 创建游戏房间
-                String roomId = "room_" + System.currentTimeMillis();
-                GameRoom room = new GameRoom(roomId, player1, player2);
-                gameRooms.put(roomId, room);
-                
-                // 通知客户端匹配成功
-                GameMessage matchMsg1 = new GameMessage(GameMessage.MessageType.MATCH_FOUND);
-                matchMsg1.setRed(true);  // 第一个玩家是红方
-                player1.sendMessage(matchMsg1);
-                
-                GameMessage matchMsg2 = new GameMessage(GameMessage.MessageType.MATCH_FOUND);
-                matchMsg2.setRed(false); // 第二个玩家是黑方
-                player2.sendMessage(matchMsg2);
-                
-                System.out.println("匹配成功: " + player1.getUsername() + " vs " + player2.getUsername());
+    public void handleMatchRequest(ClientHandler client) {
+        GameRoom currentRoom = client.getGameRoom();
+        if (currentRoom != null && currentRoom.isGameStarted()) {
+            // 对局进行中不能再次匹配
+            return;
+        }
+        
+        // 重新匹配时离开上一局（已结束）的房间
+        client.setGameRoom(null);
+        matchmaker.enqueue(client);
+    }
+    
+    /**
+     * 处理取消匹配
+     */
+    public void handleMatchCancel(ClientHandler client) {
+        if (matchmaker.cancel(client)) {
+            System.out.println("取消匹配: " + client.getUsername());
+        }
+    }
+    
+    private void runMatchmaker() {
+        try {
+            matchmaker.matchBatch();
+        } catch (RuntimeException e) {
+            // 异常不能抛出，否则周期任务会被取消
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * 匹配成功，创建游戏房间（在调度线程中执行）
+     */
+    private void createMatch(ClientHandler player1, ClientHandler player2) {
+        // 配对期间有一方已断开，另一方重新排队（除非其已取消匹配）
+        if (!player1.isConnected() || !player2.isConnected()) {
+            for (ClientHandler player : new ClientHandler[]{player1, player2}) {
+                if (player.isConnected() && player.getMatchTicket() != null) {
+                    matchmaker.enqueue(player);
+                }
+            }
+            return;
+        }
+        player1.setMatchTicket(null);
+        player2.setMatchTicket(null);
+        
+        // 创建游戏房间，通知双方匹配成功并开始计时（在房间线程中执行）
+        String roomId = "room_" + roomSequence.incrementAndGet();
+        GameRoom room = new GameRoom(roomId, player1, player2, this);
+        gameRooms.put(roomId, room);
+        player1.setGameRoom(room);
+        player2.setGameRoom(room);
+        room.execute(room::startGame);
+        
+        // 设置房间之前刚好断开的玩家，断开处理看不到该房间，这里补发
+        for (ClientHandler player : new ClientHandler[]{player1, player2}) {
+            if (!player.isConnected()) {
+                room.execute(() -> room.handlePlayerDisconnect(player));
             }
         }
+        
+        System.out.println("匹配成功: " + player1.getUsername() + " vs " + player2.getUsername());
     }
     
     /**
      * 处理游戏移动
      */
     public void handleGameMove(GameMessage moveMessage, ClientHandler sender) {
-        // 找到发送者所在的游戏房间
-        for (GameRoom room : gameRooms.values()) {
-            if (room.containsPlayer(sender)) {
-                room.handleMove(moveMessage, sender);
-                break;
-            }
+        GameRoom room = sender.getGameRoom();
+        if (room != null) {
+            room.execute(() -> room.handleMove(moveMessage, sender));
         }
     }
     
@@ -104,18 +245,25 @@ public class GameServer {
      * 处理聊天消息
      */
     public void handleChatMessage(GameMessage chatMessage, ClientHandler sender) {
-        // 找到发送者所在的游戏房间，只在房间内转发聊天消息
-        for (GameRoom room : gameRooms.values()) {
-            if (room.containsPlayer(sender)) {
-                room.handleChatMessage(chatMessage, sender);
-                return;
-            }
+        // 发送者在游戏房间中时，只在房间内转发聊天消息
+        GameRoom room = sender.getGameRoom();
+        if (room != null) {
+            room.execute(() -> room.handleChatMessage(chatMessage, sender));
+            return;
         }
         
         // 如果不在游戏房间中，广播给所有在线客户端（大厅聊天）
+        broadcast(chatMessage, sender);
+    }
+    
+    /**
+     * 广播消息给所有在线客户端（except 除外），消息只编码一次
+     */
+    public void broadcast(GameMessage message, ClientHandler except) {
+        EncodedMessage encoded = new EncodedMessage(message);
         for (ClientHandler client : clients.values()) {
-            if (client != sender) {
-                client.sendMessage(chatMessage);
+            if (client != except) {
+                client.sendMessage(encoded);
             }
         }
     }
@@ -124,11 +272,9 @@ public class GameServer {
      * 处理悔棋请求
      */
     public void handleUndoRequest(ClientHandler sender) {
-        for (GameRoom room : gameRooms.values()) {
-            if (room.containsPlayer(sender)) {
-                room.handleUndoRequest(sender);
-                break;
-            }
+        GameRoom room = sender.getGameRoom();
+        if (room != null) {
+            room.execute(() -> room.handleUndoRequest(sender));
         }
     }
     
@@ -136,11 +282,9 @@ public class GameServer {
      * 处理悔棋回应
      */
     public void handleUndoResponse(GameMessage response, ClientHandler sender) {
-        for (GameRoom room : gameRooms.values()) {
-            if (room.containsPlayer(sender)) {
-                room.handleUndoResponse(response, sender);
-                break;
-            }
+        GameRoom room = sender.getGameRoom();
+        if (room != null) {
+            room.execute(() -> room.handleUndoResponse(response, sender));
         }
     }
     
@@ -148,11 +292,9 @@ public class GameServer {
      * 处理求和请求
      */
     public void handleDrawRequest(ClientHandler sender) {
-        for (GameRoom room : gameRooms.values()) {
-            if (room.containsPlayer(sender)) {
-                room.handleDrawRequest(sender);
-                break;
-            }
+        GameRoom room = sender.getGameRoom();
+        if (room != null) {
+            room.execute(() -> room.handleDrawRequest(sender));
         }
     }
     
@@ -160,11 +302,9 @@ public class GameServer {
      * 处理求和回应
      */
     public void handleDrawResponse(GameMessage response, ClientHandler sender) {
-        for (GameRoom room : gameRooms.values()) {
-            if (room.containsPlayer(sender)) {
-                room.handleDrawResponse(response, sender);
-                break;
-            }
+        GameRoom room = sender.getGameRoom();
+        if (room != null) {
+            room.execute(() -> room.handleDrawResponse(response, sender));
         }
     }
     
@@ -172,36 +312,69 @@ public class GameServer {
      * 处理认输
      */
     public void handleSurrender(ClientHandler sender) {
-        for (GameRoom room : gameRooms.values()) {
-            if (room.containsPlayer(sender)) {
-                room.handleSurrender(sender);
-                break;
-            }
+        GameRoom room = sender.getGameRoom();
+        if (room != null) {
+            room.execute(() -> room.handleSurrender(sender));
         }
     }
     
     /**
      * 客户端断开连接
      */
-    public synchronized void handleClientDisconnect(ClientHandler client) {
+    public void handleClientDisconnect(ClientHandler client) {
         String username = client.getUsername();
         if (username != null) {
-            clients.remove(username);
-            waitingClients.remove(client);
+            clients.remove(username, client);
+            matchmaker.cancel(client);
             
             // 从游戏房间中移除
-            for (GameRoom room : gameRooms.values()) {
-                if (room.containsPlayer(client)) {
-                    room.handlePlayerDisconnect(client);
-                    gameRooms.remove(room.getRoomId());
-                    break;
-                }
+            GameRoom room = client.getGameRoom();
+            if (room != null) {
+                room.execute(() -> room.handlePlayerDisconnect(client));
+                client.setGameRoom(null);
             }
             
             System.out.println("客户端断开连接: " + username);
         }
     }
     
+    /**
+     * 对局结束后移除房间
+     * 玩家仍保留对该房间的引用（对局结束后的聊天等消息会被房间忽略），直到重新匹配或断开连接
+     */
+    void removeRoom(GameRoom room) {
+        if (gameRooms.remove(room.getRoomId(), room)) {
+            System.out.println("房间已关闭: " + room.getRoomId() + "，当前对局数: " + gameRooms.size());
+        }
+    }
+    
+    /**
+     * 输出运行统计
+     */
+    private void printStats() {
+        System.out.println("在线: " + clients.size() + "，对局: " + gameRooms.size()
+                + "，等待匹配: " + matchmaker.getQueuedCount());
+        System.out.println(matchmaker.formatStats());
+        System.out.println("时间轮待触发任务: " + timer.getPendingCount());
+        System.out.println(roomExecutor.formatStats());
+    }
+    
+    ShardedRoomExecutor getRoomExecutor() {
+        return roomExecutor;
+    }
+    
+    HashedWheelTimer getTimer() {
+        return timer;
+    }
+    
+    public ServerConfig getConfig() {
+        return config;
+    }
+    
+    Executor getWriterExecutor() {
+        return writerExecutor;
+    }
+    
     public static void main(String[] args) {
         GameServer server = new GameServer();
         server.start();
@@ -0,0 +1,221 @@
+package com.achldm.chess.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 匹配引擎
+ *
+ * 玩家按等级分划分到不同的桶中，每个桶是一个无锁并发队列，入队和取消都是 O(1)。
+ * 由单线程的批量匹配任务周期性运行：先在同一个桶内按先来后到配对，
+ * 剩下的玩家随等待时间增加逐步放宽可接受的分差（桶距），与相邻桶中的玩家配对。
+ */
+public class Matchmaker {
+
+    /**
+     * 匹配成功的回调
+     */
+    public interface MatchListener {
+        void onMatch(ClientHandler red, ClientHandler black);
+    }
+
+    /**
+     * 匹配票据，取消时只做标记，由批量匹配任务惰性清理
+     */
+    public static final class Ticket {
+        private final ClientHandler client;
+        private final int bucket;
+        private final long enqueuedAt;
+        private final AtomicBoolean active = new AtomicBoolean(true);
+
+        private Ticket(ClientHandler client, int bucket) {
+            this.client = client;
+            this.bucket = bucket;
+            this.enqueuedAt = System.nanoTime();
+        }
+
+        boolean isActive() {
+            return active.get();
+        }
+
+        /**
+         * 取消或被配对时调用，只有一方能成功
+         */
+        boolean claim() {
+            return active.compareAndSet(true, false);
+        }
+
+        private void release() {
+            active.set(true);
+        }
+
+        long waitedMillis(long now) {
+            return (now - enqueuedAt) / 1_000_000;
+        }
+    }
+
+    private final ConcurrentSkipListMap<Integer, ConcurrentLinkedDeque<Ticket>> buckets = new ConcurrentSkipListMap<>();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private final AtomicLong matchedCount = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private volatile long maxWaitMillis = 0;
+
+    private final int bucketWidth;
+    private final long widenIntervalMillis;
+    private final int maxWidenBuckets;
+    private final MatchListener listener;
+
+    public Matchmaker(ServerConfig config, MatchListener listener) {
+        this.bucketWidth = config.getRatingBucketWidth();
+        this.widenIntervalMillis = config.getMatchWidenIntervalMillis();
+        this.maxWidenBuckets = config.getMatchMaxWidenBuckets();
+        this.listener = listener;
+    }
+
+    /**
+     * 加入匹配队列，已在队列中时返回 false
+     */
+    public boolean enqueue(ClientHandler client) {
+        Ticket current = client.getMatchTicket();
+        if (current != null && current.isActive()) {
+            return false;
+        }
+
+        Ticket ticket = new Ticket(client, client.getRating() / bucketWidth);
+        client.setMatchTicket(ticket);
+        buckets.computeIfAbsent(ticket.bucket, key -> new ConcurrentLinkedDeque<>()).offerLast(ticket);
+        queuedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 取消匹配，不在队列中时返回 false
+     */
+    public boolean cancel(ClientHandler client) {
+        Ticket ticket = client.getMatchTicket();
+        client.setMatchTicket(null);
+        if (ticket != null && ticket.claim()) {
+            queuedCount.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 批量匹配，由调度线程周期性调用（不可并发调用）
+     */
+    public void matchBatch() {
+        long now = System.nanoTime();
+        List<Ticket> leftovers = new ArrayList<>();
+
+        // 第一轮：桶内按入队顺序两两配对
+        for (Map.Entry<Integer, ConcurrentLinkedDeque<Ticket>> entry : buckets.entrySet()) {
+            ConcurrentLinkedDeque<Ticket> queue = entry.getValue();
+            Ticket waiting = null;
+            Ticket ticket;
+            while ((ticket = queue.pollFirst()) != null) {
+                if (!ticket.isActive()) {
+                    continue;
+                }
+                if (waiting == null) {
+                    waiting = ticket;
+                } else if (tryPair(waiting, ticket, now)) {
+                    waiting = null;
+                } else if (waiting.isActive()) {
+                    // ticket 已被取消，waiting 继续等待下一个
+                    continue;
+                } else {
+                    waiting = ticket.isActive() ? ticket : null;
+                }
+            }
+            if (waiting != null) {
+                leftovers.add(waiting);
+            }
+        }
+
+        // 第二轮：落单的玩家按等待时间放宽分差，与相邻桶的玩家配对（leftovers 按桶号有序）
+        Iterator<Ticket> iterator = leftovers.iterator();
+        Ticket previous = null;
+        while (iterator.hasNext()) {
+            Ticket ticket = iterator.next();
+            if (previous != null) {
+                int window = Math.min(widenBuckets(previous, now), widenBuckets(ticket, now));
+                if (ticket.bucket - previous.bucket <= window && tryPair(previous, ticket, now)) {
+                    previous = null;
+                    continue;
+                }
+                requeue(previous);
+            }
+            previous = ticket;
+        }
+        if (previous != null) {
+            requeue(previous);
+        }
+    }
+
+    private int widenBuckets(Ticket ticket, long now) {
+        if (widenIntervalMillis <= 0) {
+            return 0;
+        }
+        return (int) Math.min(maxWidenBuckets, ticket.waitedMillis(now) / widenIntervalMillis);
+    }
+
+    /**
+     * 配对两个票据，任一方已被取消时返回 false（另一方保持可用）
+     */
+    private boolean tryPair(Ticket first, Ticket second, long now) {
+        if (!first.claim()) {
+            return false;
+        }
+        if (!second.claim()) {
+            first.release();
+            return false;
+        }
+        queuedCount.addAndGet(-2);
+        recordWait(first.waitedMillis(now));
+        recordWait(second.waitedMillis(now));
+
+        // 先入队的玩家执红
+        if (first.enqueuedAt <= second.enqueuedAt) {
+            listener.onMatch(first.client, second.client);
+        } else {
+            listener.onMatch(second.client, first.client);
+        }
+        return true;
+    }
+
+    private void requeue(Ticket ticket) {
+        if (ticket.isActive()) {
+            buckets.get(ticket.bucket).offerFirst(ticket);
+        }
+    }
+
+    private void recordWait(long waitedMillis) {
+        matchedCount.incrementAndGet();
+        totalWaitMillis.addAndGet(waitedMillis);
+        if (waitedMillis > maxWaitMillis) {
+            maxWaitMillis = waitedMillis;
+        }
+    }
+
+    public int getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * 匹配统计：排队人数、已匹配人数、平均/最长等待时间
+     */
+    public String formatStats() {
+        long matched = matchedCount.get();
+        return "匹配队列: " + queuedCount.get() + " 人，已匹配: " + matched + " 人"
+                + "，平均等待: " + (matched > 0 ? totalWaitMillis.get() / matched : 0) + " ms"
+                + "，最长等待: " + maxWaitMillis + " ms";
+    }
+}
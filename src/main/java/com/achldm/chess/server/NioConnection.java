@@ -0,0 +1,233 @@
+package com.achldm.chess.server;
+
+import com.achldm.chess.common.EncodedMessage;
+import com.achldm.chess.common.GameMessage;
+import com.achldm.chess.common.MessageCodec;
+import com.achldm.chess.common.MessageFrames;
+import com.achldm.chess.common.ProtocolHandshake;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 基于 SocketChannel 的非阻塞连接
+ * 读写都在所属的 NioEventLoop 线程中执行，其他线程发送消息时只负责放入有界的 OutboundQueue，
+ * 事件循环一次取出一批帧，用一次聚集写（gathering write）写出
+ */
+public class NioConnection implements Connection {
+    private static final int INITIAL_READ_BUFFER = 4096;
+    private static final int MAX_BATCH_BYTES = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final NioEventLoop eventLoop;
+    private final boolean binaryEnabled;
+    private final OutboundQueue outboundQueue;
+    private final ArrayDeque<ByteBuffer> pendingWrites = new ArrayDeque<>(); // 已取出但尚未写完的帧，仅事件循环访问
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER);
+    private SelectionKey key;
+    private ClientHandler handler;
+    private volatile MessageCodec codec;  // 协商完成前为 null
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    NioConnection(SocketChannel channel, NioEventLoop eventLoop, ServerConfig config) {
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+        this.binaryEnabled = config.isBinaryProtocol();
+        this.outboundQueue = new OutboundQueue(config.getOutboundQueueBytes(), config.getOverflowPolicy());
+    }
+
+    /**
+     * 注册到 Selector 后由事件循环调用
+     */
+    void attach(SelectionKey key, ClientHandler handler) {
+        this.key = key;
+        this.handler = handler;
+    }
+
+    /**
+     * 处理可读事件：读取数据并拆出完整的消息帧
+     */
+    void onReadable() {
+        int read;
+        try {
+            read = channel.read(readBuffer);
+        } catch (IOException e) {
+            System.out.println("客户端连接异常: " + e.getMessage());
+            close();
+            return;
+        }
+        if (read < 0) {
+            close();
+            return;
+        }
+
+        readBuffer.flip();
+        if (codec == null && !handshake()) {
+            readBuffer.compact();
+            return;
+        }
+        while (readBuffer.hasRemaining()) {
+            int length = MessageFrames.peekLength(readBuffer);
+            if (length < 0) {
+                break;
+            }
+            if (!MessageFrames.isValidLength(length)) {
+                System.out.println("非法的消息长度: " + length + "，关闭连接");
+                close();
+                return;
+            }
+            int headerSize = MessageFrames.headerSize(length);
+            if (readBuffer.remaining() < headerSize + length) {
+                break;
+            }
+
+            int start = readBuffer.position() + headerSize;
+            GameMessage message;
+            try {
+                message = codec.decode(readBuffer.array(), start, length);
+            } catch (IOException e) {
+                System.out.println("消息解析失败: " + e.getMessage());
+                close();
+                return;
+            }
+            readBuffer.position(start + length);
+
+            handler.handleMessage(message);
+            if (closed.get()) {
+                return;
+            }
+        }
+        readBuffer.compact();
+
+        // 缓冲区已满但帧还不完整时扩容
+        if (!readBuffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(readBuffer.capacity() * 2,
+                    MessageFrames.MAX_HEADER_SIZE + MessageFrames.MAX_FRAME_SIZE));
+            readBuffer.flip();
+            larger.put(readBuffer);
+            readBuffer = larger;
+        }
+    }
+
+    /**
+     * 读取客户端问候并回复选定的编解码器，数据不足时返回 false
+     */
+    private boolean handshake() {
+        if (readBuffer.remaining() < ProtocolHandshake.HELLO_SIZE) {
+            return false;
+        }
+        try {
+            codec = ProtocolHandshake.negotiate(
+                    ProtocolHandshake.parseHello(readBuffer.array(), readBuffer.position()), binaryEnabled);
+        } catch (IOException e) {
+            System.out.println("协议协商失败: " + e.getMessage());
+            close();
+            return false;
+        }
+        readBuffer.position(readBuffer.position() + ProtocolHandshake.HELLO_SIZE);
+        outboundQueue.offer(new byte[]{(byte) codec.getId()}, false);
+        flush();
+        return true;
+    }
+
+    /**
+     * 处理可写事件：继续写出积压的数据
+     */
+    void onWritable() {
+        flush();
+    }
+
+    @Override
+    public void send(EncodedMessage message) throws IOException {
+        if (closed.get()) {
+            throw new IOException("连接已关闭");
+        }
+        if (codec == null) {
+            throw new IOException("协议尚未协商");
+        }
+        byte[] frame = message.frame(codec);
+        switch (outboundQueue.offer(frame, OutboundQueue.isDroppable(message.getType()))) {
+            case SCHEDULE:
+                eventLoop.execute(this::flush);
+                break;
+            case OVERFLOW:
+                throw new IOException("发送队列已满，客户端处理过慢");
+            case CLOSED:
+                throw new IOException("连接已关闭");
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 尽可能写出队列中的数据，写不完时关注 OP_WRITE 等待下次可写
+     */
+    private void flush() {
+        if (closed.get() || key == null) {
+            return;
+        }
+        try {
+            while (true) {
+                if (!pendingWrites.isEmpty()) {
+                    channel.write(pendingWrites.toArray(new ByteBuffer[0]));
+                    while (!pendingWrites.isEmpty() && !pendingWrites.peekFirst().hasRemaining()) {
+                        pendingWrites.pollFirst();
+                    }
+                    if (!pendingWrites.isEmpty()) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                }
+
+                List<byte[]> batch = outboundQueue.poll(MAX_BATCH_BYTES);
+                if (batch.isEmpty()) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                    return;
+                }
+                for (byte[] frame : batch) {
+                    pendingWrites.addLast(ByteBuffer.wrap(frame));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("发送消息失败: " + e.getMessage());
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (key != null) {
+                key.cancel();
+            }
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        outboundQueue.close();
+
+        // 与阻塞模式一致，连接关闭后通知服务器清理该客户端
+        if (handler != null) {
+            eventLoop.execute(handler::handleDisconnect);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed.get() && channel.isOpen();
+    }
+
+    @Override
+    public Socket getSocket() {
+        return channel.socket();
+    }
+}
@@ -0,0 +1,116 @@
+package com.achldm.chess.server;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * NIO 事件循环线程
+ * 每个事件循环持有一个 Selector，负责其上所有连接的读写，
+ * 服务器只需要少量固定的事件循环线程即可承载大量连接
+ */
+public class NioEventLoop extends Thread {
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    public NioEventLoop(String name) throws IOException {
+        super(name);
+        this.selector = Selector.open();
+    }
+
+    /**
+     * 将新接受的连接注册到本事件循环
+     */
+    public void register(SocketChannel channel, GameServer server) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                NioConnection connection = new NioConnection(channel, this, server.getConfig());
+                ClientHandler handler = new ClientHandler(connection, server);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connection.attach(key, handler);
+                // 从注册开始检测空闲，连接后迟迟不握手的客户端同样会被断开
+                handler.startIdleCheck();
+            } catch (IOException e) {
+                System.err.println("注册客户端连接失败: " + e.getMessage());
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        });
+    }
+
+    /**
+     * 在事件循环线程中执行任务，当前就是事件循环线程时直接执行
+     */
+    public void execute(Runnable task) {
+        if (Thread.currentThread() == this) {
+            task.run();
+        } else {
+            tasks.offer(task);
+            selector.wakeup();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                runTasks();
+
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+
+                    NioConnection connection = (NioConnection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            connection.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.onWritable();
+                        }
+                    } catch (RuntimeException e) {
+                        // 单个连接处理出错只关闭该连接，不能让事件循环线程退出
+                        e.printStackTrace();
+                        connection.close();
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (selector.isOpen()) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 关闭事件循环
+     */
+    public void shutdown() {
+        try {
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
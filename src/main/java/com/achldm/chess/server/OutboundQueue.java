@@ -0,0 +1,171 @@
+package com.achldm.chess.server;
+
+import com.achldm.chess.common.GameMessage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单个连接的有界发送队列
+ *
+ * 任意线程都可以把编码好的帧放入队列，由唯一的写出者（写线程或事件循环）批量取出，
+ * 一批帧合并为一次 flush / 一次系统调用。队列按字节数限流，超出上限时按溢出策略处理。
+ */
+public class OutboundQueue {
+
+    public enum OverflowPolicy {
+        DROP_CHAT,   // 优先丢弃聊天、心跳等可丢弃的帧，仍放不下时断开连接
+        DISCONNECT   // 直接断开慢速客户端
+    }
+
+    /**
+     * offer 的结果
+     */
+    public enum OfferResult {
+        QUEUED,    // 已入队，写出者已在运行
+        SCHEDULE,  // 已入队，调用方需要启动写出者
+        DROPPED,   // 按策略丢弃
+        OVERFLOW,  // 队列溢出，调用方应断开连接
+        CLOSED     // 队列已关闭（连接已断开），帧被丢弃
+    }
+
+    private static final class Frame {
+        final byte[] data;
+        final boolean droppable;
+
+        Frame(byte[] data, boolean droppable) {
+            this.data = data;
+            this.droppable = droppable;
+        }
+    }
+
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int maxBytes;
+    private final OverflowPolicy policy;
+    private int queuedBytes = 0;
+    private boolean writerScheduled = false;
+    private boolean closed = false;
+    private long droppedFrames = 0;
+
+    public OutboundQueue(int maxBytes, OverflowPolicy policy) {
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+    }
+
+    /**
+     * 可丢弃的消息类型：丢失后不影响对局状态
+     */
+    public static boolean isDroppable(GameMessage.MessageType type) {
+        return type == GameMessage.MessageType.CHAT || type == GameMessage.MessageType.HEARTBEAT;
+    }
+
+    public OfferResult offer(byte[] frame, boolean droppable) {
+        lock.lock();
+        try {
+            if (closed) {
+                return OfferResult.CLOSED;
+            }
+            if (queuedBytes + frame.length > maxBytes) {
+                if (policy == OverflowPolicy.DISCONNECT) {
+                    return OfferResult.OVERFLOW;
+                }
+                if (droppable) {
+                    droppedFrames++;
+                    return OfferResult.DROPPED;
+                }
+                evictDroppable(queuedBytes + frame.length - maxBytes);
+                if (queuedBytes + frame.length > maxBytes) {
+                    return OfferResult.OVERFLOW;
+                }
+            }
+
+            frames.addLast(new Frame(frame, droppable));
+            queuedBytes += frame.length;
+            if (writerScheduled) {
+                return OfferResult.QUEUED;
+            }
+            writerScheduled = true;
+            return OfferResult.SCHEDULE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 从最旧的开始丢弃可丢弃的帧，直到腾出所需空间
+     */
+    private void evictDroppable(int needed) {
+        Iterator<Frame> iterator = frames.iterator();
+        while (needed > 0 && iterator.hasNext()) {
+            Frame frame = iterator.next();
+            if (frame.droppable) {
+                iterator.remove();
+                queuedBytes -= frame.data.length;
+                needed -= frame.data.length;
+                droppedFrames++;
+            }
+        }
+    }
+
+    /**
+     * 写出者取出一批帧（总大小不超过 maxBatchBytes，至少一帧）
+     * 队列为空时返回空列表，并标记写出者已停止，之后的 offer 会重新返回 SCHEDULE
+     */
+    public List<byte[]> poll(int maxBatchBytes) {
+        lock.lock();
+        try {
+            if (frames.isEmpty()) {
+                writerScheduled = false;
+                return new ArrayList<>(0);
+            }
+            List<byte[]> batch = new ArrayList<>(Math.min(frames.size(), 16));
+            int batchBytes = 0;
+            while (!frames.isEmpty()
+                    && (batch.isEmpty() || batchBytes + frames.peekFirst().data.length <= maxBatchBytes)) {
+                Frame frame = frames.pollFirst();
+                batch.add(frame.data);
+                batchBytes += frame.data.length;
+            }
+            queuedBytes -= batchBytes;
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 连接断开时调用：清空队列，之后的 offer 都返回 CLOSED，不再有帧积压在无人写出的队列中
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            frames.clear();
+            queuedBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueuedBytes() {
+        lock.lock();
+        try {
+            return queuedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDroppedFrames() {
+        lock.lock();
+        try {
+            return droppedFrames;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
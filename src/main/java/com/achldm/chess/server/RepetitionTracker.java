@@ -0,0 +1,161 @@
+package com.achldm.chess.server;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 重复局面与自然限着判定
+ *
+ * 按步记录走后局面的哈希、是否吃子、是否将军/捉子，并用哈希表统计每个局面出现的次数，
+ * 每步只做常数次操作，不需要回扫历史。某个局面出现次数达到上限时按亚洲规则简化判定：
+ * 一方在循环内每步都将军（长将）而另一方不是，长将方判负；
+ * 都不是长将时，一方每步都捉子（长捉）而另一方不是，长捉方判负；其余情况判和。
+ * 连续未吃子步数达到上限判和。
+ *
+ * 红方走奇数步（第1、3、5...步），支持悔棋时逐步回退。非线程安全，只在房间线程中使用。
+ */
+public class RepetitionTracker {
+
+    public enum Verdict {
+        NONE,
+        DRAW_REPETITION,          // 重复局面，双方都不违例
+        DRAW_NO_CAPTURE,          // 达到自然限着
+        RED_PERPETUAL_CHECK,      // 红方长将判负
+        BLACK_PERPETUAL_CHECK,    // 黑方长将判负
+        RED_PERPETUAL_CHASE,      // 红方长捉判负
+        BLACK_PERPETUAL_CHASE     // 黑方长捉判负
+    }
+
+    // 局面出现次数及最早出现的步数
+    private static final class Occurrence {
+        int count;
+        int firstPly;
+    }
+
+    private final int repetitionLimit;
+    private final int noCaptureLimit;
+    private final Map<Long, Occurrence> occurrences = new HashMap<>();
+
+    // 按步数下标（0 为初始局面）记录的历史
+    private long[] hashes = new long[128];
+    private int[] checkStreaks = new int[128];    // 走棋方截至该步连续将军的步数
+    private int[] chaseStreaks = new int[128];    // 走棋方截至该步连续捉子的步数
+    private int[] quietPlies = new int[128];      // 截至该步连续未吃子的步数
+    private int ply = 0;
+
+    /**
+     * @param repetitionLimit 同一局面出现多少次时判定，小于2表示不判定
+     * @param noCaptureLimit  连续多少步（单方走一次为一步）未吃子判和，0 表示不判定
+     */
+    public RepetitionTracker(long initialHash, int repetitionLimit, int noCaptureLimit) {
+        this.repetitionLimit = repetitionLimit;
+        this.noCaptureLimit = noCaptureLimit;
+        hashes[0] = initialHash;
+        addOccurrence(initialHash, 0);
+    }
+
+    /**
+     * 记录一步棋并返回判定结果
+     * @param hash    走后局面哈希
+     * @param capture 是否吃子
+     * @param check   是否将军
+     * @param chase   是否捉子（不含将军）
+     */
+    public Verdict onMove(long hash, boolean capture, boolean check, boolean chase) {
+        ply++;
+        ensureCapacity();
+        hashes[ply] = hash;
+        // 同一方的上一步在 ply - 2
+        checkStreaks[ply] = check ? streakBefore(checkStreaks) + 1 : 0;
+        chaseStreaks[ply] = chase ? streakBefore(chaseStreaks) + 1 : 0;
+        quietPlies[ply] = capture ? 0 : quietPlies[ply - 1] + 1;
+
+        Occurrence occurrence = addOccurrence(hash, ply);
+        if (repetitionLimit >= 2 && occurrence.count >= repetitionLimit) {
+            return judgeRepetition(occurrence.firstPly);
+        }
+        if (noCaptureLimit > 0 && quietPlies[ply] >= noCaptureLimit) {
+            return Verdict.DRAW_NO_CAPTURE;
+        }
+        return Verdict.NONE;
+    }
+
+    /**
+     * 撤销最后一步（悔棋）
+     */
+    public void undo() {
+        if (ply == 0) {
+            return;
+        }
+        Occurrence occurrence = occurrences.get(hashes[ply]);
+        if (occurrence != null && --occurrence.count == 0) {
+            occurrences.remove(hashes[ply]);
+        }
+        ply--;
+    }
+
+    public int getPly() {
+        return ply;
+    }
+
+    private int streakBefore(int[] streaks) {
+        return ply >= 2 ? streaks[ply - 2] : 0;
+    }
+
+    private Occurrence addOccurrence(long hash, int atPly) {
+        Occurrence occurrence = occurrences.get(hash);
+        if (occurrence == null) {
+            occurrence = new Occurrence();
+            occurrence.firstPly = atPly;
+            occurrences.put(hash, occurrence);
+        }
+        occurrence.count++;
+        return occurrence;
+    }
+
+    /**
+     * 从 firstPly 到当前步构成循环，比较双方在循环内的走法是否全部是将军/捉子
+     */
+    private Verdict judgeRepetition(int firstPly) {
+        boolean redMovedLast = (ply & 1) == 1;
+        int redMoves = movesInCycle(firstPly, true);
+        int blackMoves = movesInCycle(firstPly, false);
+        // 当前步和上一步分别是两方在循环内的最后一步
+        int redLast = redMovedLast ? ply : ply - 1;
+        int blackLast = redMovedLast ? ply - 1 : ply;
+
+        boolean redChecks = redMoves > 0 && checkStreaks[redLast] >= redMoves;
+        boolean blackChecks = blackMoves > 0 && checkStreaks[blackLast] >= blackMoves;
+        if (redChecks != blackChecks) {
+            return redChecks ? Verdict.RED_PERPETUAL_CHECK : Verdict.BLACK_PERPETUAL_CHECK;
+        }
+        if (!redChecks) {
+            boolean redChases = redMoves > 0 && chaseStreaks[redLast] >= redMoves;
+            boolean blackChases = blackMoves > 0 && chaseStreaks[blackLast] >= blackMoves;
+            if (redChases != blackChases) {
+                return redChases ? Verdict.RED_PERPETUAL_CHASE : Verdict.BLACK_PERPETUAL_CHASE;
+            }
+        }
+        return Verdict.DRAW_REPETITION;
+    }
+
+    /**
+     * 第 firstPly + 1 步到当前步之间某一方走了几步（红方走奇数步）
+     */
+    private int movesInCycle(int firstPly, boolean red) {
+        int odd = (ply + 1) / 2 - (firstPly + 1) / 2;
+        return red ? odd : (ply - firstPly) - odd;
+    }
+
+    private void ensureCapacity() {
+        if (ply < hashes.length) {
+            return;
+        }
+        int size = hashes.length * 2;
+        hashes = Arrays.copyOf(hashes, size);
+        checkStreaks = Arrays.copyOf(checkStreaks, size);
+        chaseStreaks = Arrays.copyOf(chaseStreaks, size);
+        quietPlies = Arrays.copyOf(quietPlies, size);
+    }
+}
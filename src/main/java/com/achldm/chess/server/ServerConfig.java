@@ -0,0 +1,125 @@
+package com.achldm.chess.server;
+
+import com.achldm.chess.common.MessageFrames;
+
+/**
+ * 服务器配置
+ * 默认值可以通过 -Dchess.xxx 系统属性覆盖
+ */
+public class ServerConfig {
+
+    public enum Mode {
+        THREAD,   // 每个连接一个平台线程（阻塞IO）
+        VIRTUAL,  // 每个连接一个虚拟线程（阻塞IO，需要 Java 21+）
+        NIO       // Selector 事件循环（非阻塞IO）
+    }
+
+    private int port = 8888;
+    private Mode mode = Mode.THREAD;
+    private int eventLoopThreads = Runtime.getRuntime().availableProcessors();
+    private boolean binaryProtocol = true;  // 是否允许协商紧凑二进制协议
+    private int outboundQueueBytes = 256 * 1024;  // 每个连接发送队列的字节上限
+    private OutboundQueue.OverflowPolicy overflowPolicy = OutboundQueue.OverflowPolicy.DROP_CHAT;
+    private int roomShards = Runtime.getRuntime().availableProcessors();  // 房间分片线程数
+    private int statsIntervalSeconds = 60;  // 输出运行统计的间隔，0 表示不输出
+    private int matchIntervalMillis = 200;  // 批量匹配的运行间隔
+    private int ratingBucketWidth = 100;  // 匹配桶覆盖的等级分范围
+    private int matchWidenIntervalMillis = 5000;  // 每等待这么久，可接受的分差放宽一个桶
+    private int matchMaxWidenBuckets = 5;  // 最多放宽的桶数
+    private int timerTickMillis = 100;  // 时间轮刻度
+    private int idleTimeoutSeconds = 45;  // 超过该时间未收到任何消息（含心跳）则断开连接，0 表示不检测
+    private int requestTimeoutSeconds = 10;  // 悔棋、求和请求等待对手回应的时间
+    private int clockInitialSeconds = 600;  // 每方的基本用时
+    private int clockIncrementSeconds = 5;  // 每走一步的加秒（费舍尔制）
+    private int repetitionLimit = 3;  // 同一局面出现几次时判定长将/长捉/和棋，0 表示不判定
+    private int noCapturePlies = 120;  // 连续多少步（双方各走一次算两步）未吃子判和，0 表示不判定
+
+    /**
+     * 从系统属性读取配置
+     */
+    public static ServerConfig fromSystemProperties() {
+        ServerConfig config = new ServerConfig();
+        config.setPort(Integer.getInteger("chess.port", config.getPort()));
+        config.setMode(Mode.valueOf(System.getProperty("chess.server.mode", config.getMode().name()).toUpperCase()));
+        config.setEventLoopThreads(Integer.getInteger("chess.nio.threads", config.getEventLoopThreads()));
+        config.setBinaryProtocol(Boolean.parseBoolean(System.getProperty("chess.protocol.binary", String.valueOf(config.isBinaryProtocol()))));
+        config.setOutboundQueueBytes(Integer.getInteger("chess.outbound.maxBytes", config.getOutboundQueueBytes()));
+        config.setOverflowPolicy(OutboundQueue.OverflowPolicy.valueOf(
+                System.getProperty("chess.outbound.overflow", config.getOverflowPolicy().name()).toUpperCase()));
+        config.setRoomShards(Integer.getInteger("chess.room.shards", config.getRoomShards()));
+        config.setStatsIntervalSeconds(Integer.getInteger("chess.stats.interval", config.getStatsIntervalSeconds()));
+        config.setMatchIntervalMillis(Integer.getInteger("chess.match.interval", config.getMatchIntervalMillis()));
+        config.setRatingBucketWidth(Integer.getInteger("chess.match.bucketWidth", config.getRatingBucketWidth()));
+        config.setMatchWidenIntervalMillis(Integer.getInteger("chess.match.widenInterval", config.getMatchWidenIntervalMillis()));
+        config.setMatchMaxWidenBuckets(Integer.getInteger("chess.match.maxWiden", config.getMatchMaxWidenBuckets()));
+        config.setTimerTickMillis(Integer.getInteger("chess.timer.tick", config.getTimerTickMillis()));
+        config.setIdleTimeoutSeconds(Integer.getInteger("chess.idle.timeout", config.getIdleTimeoutSeconds()));
+        config.setRequestTimeoutSeconds(Integer.getInteger("chess.request.timeout", config.getRequestTimeoutSeconds()));
+        config.setClockInitialSeconds(Integer.getInteger("chess.clock.initial", config.getClockInitialSeconds()));
+        config.setClockIncrementSeconds(Integer.getInteger("chess.clock.increment", config.getClockIncrementSeconds()));
+        config.setRepetitionLimit(Integer.getInteger("chess.rule.repetition", config.getRepetitionLimit()));
+        config.setNoCapturePlies(Integer.getInteger("chess.rule.noCapturePlies", config.getNoCapturePlies()));
+        return config;
+    }
+
+    // Getters and Setters
+    public int getPort() { return port; }
+    public void setPort(int port) { this.port = port; }
+
+    public Mode getMode() { return mode; }
+    public void setMode(Mode mode) { this.mode = mode; }
+
+    public int getEventLoopThreads() { return eventLoopThreads; }
+    public void setEventLoopThreads(int eventLoopThreads) { this.eventLoopThreads = Math.max(1, eventLoopThreads); }
+
+    public boolean isBinaryProtocol() { return binaryProtocol; }
+    public void setBinaryProtocol(boolean binaryProtocol) { this.binaryProtocol = binaryProtocol; }
+
+    public int getOutboundQueueBytes() { return outboundQueueBytes; }
+    public void setOutboundQueueBytes(int outboundQueueBytes) {
+        // 至少能放下一帧最大的消息
+        this.outboundQueueBytes = Math.max(outboundQueueBytes, MessageFrames.MAX_HEADER_SIZE + MessageFrames.MAX_FRAME_SIZE);
+    }
+
+    public OutboundQueue.OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+    public void setOverflowPolicy(OutboundQueue.OverflowPolicy overflowPolicy) { this.overflowPolicy = overflowPolicy; }
+
+    public int getRoomShards() { return roomShards; }
+    public void setRoomShards(int roomShards) { this.roomShards = Math.max(1, roomShards); }
+
+    public int getStatsIntervalSeconds() { return statsIntervalSeconds; }
+    public void setStatsIntervalSeconds(int statsIntervalSeconds) { this.statsIntervalSeconds = statsIntervalSeconds; }
+
+    public int getMatchIntervalMillis() { return matchIntervalMillis; }
+    public void setMatchIntervalMillis(int matchIntervalMillis) { this.matchIntervalMillis = Math.max(10, matchIntervalMillis); }
+
+    public int getRatingBucketWidth() { return ratingBucketWidth; }
+    public void setRatingBucketWidth(int ratingBucketWidth) { this.ratingBucketWidth = Math.max(1, ratingBucketWidth); }
+
+    public int getMatchWidenIntervalMillis() { return matchWidenIntervalMillis; }
+    public void setMatchWidenIntervalMillis(int matchWidenIntervalMillis) { this.matchWidenIntervalMillis = matchWidenIntervalMillis; }
+
+    public int getMatchMaxWidenBuckets() { return matchMaxWidenBuckets; }
+    public void setMatchMaxWidenBuckets(int matchMaxWidenBuckets) { this.matchMaxWidenBuckets = Math.max(0, matchMaxWidenBuckets); }
+
+    public int getTimerTickMillis() { return timerTickMillis; }
+    public void setTimerTickMillis(int timerTickMillis) { this.timerTickMillis = Math.max(1, timerTickMillis); }
+
+    public int getIdleTimeoutSeconds() { return idleTimeoutSeconds; }
+    public void setIdleTimeoutSeconds(int idleTimeoutSeconds) { this.idleTimeoutSeconds = Math.max(0, idleTimeoutSeconds); }
+
+    public int getRequestTimeoutSeconds() { return requestTimeoutSeconds; }
+    public void setRequestTimeoutSeconds(int requestTimeoutSeconds) { this.requestTimeoutSeconds = Math.max(1, requestTimeoutSeconds); }
+
+    public int getClockInitialSeconds() { return clockInitialSeconds; }
+    public void setClockInitialSeconds(int clockInitialSeconds) { this.clockInitialSeconds = Math.max(1, clockInitialSeconds); }
+
+    public int getClockIncrementSeconds() { return clockIncrementSeconds; }
+    public void setClockIncrementSeconds(int clockIncrementSeconds) { this.clockIncrementSeconds = Math.max(0, clockIncrementSeconds); }
+
+    public int getRepetitionLimit() { return repetitionLimit; }
+    public void setRepetitionLimit(int repetitionLimit) { this.repetitionLimit = Math.max(0, repetitionLimit); }
+
+    public int getNoCapturePlies() { return noCapturePlies; }
+    public void setNoCapturePlies(int noCapturePlies) { this.noCapturePlies = Math.max(0, noCapturePlies); }
+}
@@ -0,0 +1,110 @@
+package com.achldm.chess.server;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按房间分片的执行器
+ *
+ * 固定数量的分片线程，每个分片有自己的消息队列（邮箱）。房间按房间号哈希固定落在一个分片上，
+ * 同一房间的所有消息都在同一线程中按顺序处理，房间逻辑因此无需加锁也不会出现竞争；
+ * 不同房间分布在各个分片上并行执行，吞吐量随CPU核数扩展。
+ */
+public class ShardedRoomExecutor {
+    private final Shard[] shards;
+
+    public ShardedRoomExecutor(int shardCount) {
+        shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard("room-shard-" + i);
+            shards[i].start();
+        }
+    }
+
+    /**
+     * 获取房间所属的分片
+     */
+    public Shard shardFor(String roomId) {
+        return shards[(roomId.hashCode() & 0x7FFFFFFF) % shards.length];
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * 各分片的队列深度统计，格式：分片号:当前深度/最大深度/已处理数
+     */
+    public String formatStats() {
+        StringBuilder sb = new StringBuilder("房间分片队列");
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[i];
+            sb.append(" [").append(i).append(": ")
+                    .append(shard.getQueueDepth()).append('/')
+                    .append(shard.getMaxQueueDepth()).append('/')
+                    .append(shard.getProcessedCount()).append(']');
+        }
+        return sb.toString();
+    }
+
+    public void shutdown() {
+        for (Shard shard : shards) {
+            shard.interrupt();
+        }
+    }
+
+    /**
+     * 单个分片：一个线程顺序处理邮箱中的任务
+     */
+    public static final class Shard extends Thread {
+        private final LinkedBlockingQueue<Runnable> mailbox = new LinkedBlockingQueue<>();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private final AtomicLong processedCount = new AtomicLong();
+
+        private Shard(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        /**
+         * 投递任务到邮箱，可以在任意线程调用
+         */
+        public void submit(Runnable task) {
+            mailbox.offer(task);
+            int depth = mailbox.size();
+            if (depth > maxQueueDepth.get()) {
+                maxQueueDepth.accumulateAndGet(depth, Math::max);
+            }
+        }
+
+        public int getQueueDepth() {
+            return mailbox.size();
+        }
+
+        public int getMaxQueueDepth() {
+            return maxQueueDepth.get();
+        }
+
+        public long getProcessedCount() {
+            return processedCount.get();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!isInterrupted()) {
+                    Runnable task = mailbox.take();
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                    processedCount.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                // 执行器关闭
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.achldm.chess.server;
+
+import com.achldm.chess.common.EncodedMessage;
+import com.achldm.chess.common.GameMessage;
+import com.achldm.chess.common.MessageCodec;
+import com.achldm.chess.common.MessageFrames;
+import com.achldm.chess.common.ProtocolHandshake;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 基于阻塞 Socket 的连接，由一个专门的线程（平台线程或虚拟线程）循环读取
+ * 发送的消息先进入有界的 OutboundQueue，再由共享执行器中的写任务批量写出，
+ * 调用 send 的线程（例如对手的处理线程）不会被慢速客户端阻塞
+ */
+public class SocketConnection implements Connection {
+    private static final int HANDSHAKE_TIMEOUT = 10000; // 协商超时（毫秒）
+    private static final int MAX_BATCH_BYTES = 64 * 1024;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final OutboundQueue outboundQueue;
+    private final Executor writerExecutor;
+    private volatile MessageCodec codec;
+
+    public SocketConnection(Socket socket, Executor writerExecutor, ServerConfig config) throws IOException {
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), MAX_BATCH_BYTES));
+        this.writerExecutor = writerExecutor;
+        this.outboundQueue = new OutboundQueue(config.getOutboundQueueBytes(), config.getOverflowPolicy());
+    }
+
+    /**
+     * 与客户端协商编解码器，必须在读取消息之前由读线程调用
+     */
+    public void handshake(boolean binaryEnabled) throws IOException {
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+        codec = ProtocolHandshake.serverHandshake(in, out, binaryEnabled);
+        socket.setSoTimeout(0);
+    }
+
+    /**
+     * 阻塞读取下一条消息
+     */
+    public GameMessage readMessage() throws IOException {
+        return MessageFrames.read(in, codec);
+    }
+
+    @Override
+    public void send(EncodedMessage message) throws IOException {
+        if (!isOpen()) {
+            throw new IOException("连接已关闭");
+        }
+        if (codec == null) {
+            throw new IOException("协议尚未协商");
+        }
+        byte[] frame = message.frame(codec);
+        switch (outboundQueue.offer(frame, OutboundQueue.isDroppable(message.getType()))) {
+            case SCHEDULE:
+                writerExecutor.execute(this::drain);
+                break;
+            case OVERFLOW:
+                throw new IOException("发送队列已满，客户端处理过慢");
+            case CLOSED:
+                throw new IOException("连接已关闭");
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 写任务：批量取出队列中的帧，每批只 flush 一次
+     */
+    private void drain() {
+        try {
+            List<byte[]> batch;
+            while (!(batch = outboundQueue.poll(MAX_BATCH_BYTES)).isEmpty()) {
+                for (byte[] frame : batch) {
+                    out.write(frame);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("发送消息失败: " + e.getMessage());
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        outboundQueue.close();
+        try {
+            if (!socket.isClosed()) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !socket.isClosed();
+    }
+
+    @Override
+    public Socket getSocket() {
+        return socket;
+    }
+}
@@ -0,0 +1,46 @@
+package com.achldm.chess.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 虚拟线程支持
+ * 项目仍以 Java 17 编译，这里通过反射使用 Java 21 的
+ * Executors.newVirtualThreadPerTaskExecutor()，在旧版本JDK上返回 null
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前运行时是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return findFactory() != null;
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的执行器，不支持时返回 null
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        Method factory = findFactory();
+        if (factory == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("创建虚拟线程执行器失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Method findFactory() {
+        try {
+            return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}